@@ -0,0 +1,83 @@
+package com.animusic;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothSocket;
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.UUID;
+
+// RFCOMM serial port link to a paired or discovered printer
+public class BluetoothPrinterTransport implements PrinterTransport {
+    private static final String TAG = "BluetoothTransport";
+    static final UUID SERIAL_PORT_UUID = UUID.fromString("00001101-0000-1000-8000-00805F9B34FB");
+
+    private final BluetoothAdapter adapter;
+    private final BluetoothDevice device;
+
+    public BluetoothPrinterTransport(BluetoothAdapter adapter, BluetoothDevice device) {
+        this.adapter = adapter;
+        this.device = device;
+    }
+
+    @Override
+    public String getAddress() {
+        return device.getAddress();
+    }
+
+    @Override
+    public String getName() {
+        try {
+            String name = device.getName();
+            return name != null ? name : device.getAddress();
+        } catch (SecurityException e) {
+            return device.getAddress();
+        }
+    }
+
+    @Override
+    public Link open() throws IOException {
+        try {
+            // An ongoing inquiry slows RFCOMM connects down considerably
+            adapter.cancelDiscovery();
+        } catch (SecurityException e) {
+            Log.w(TAG, "Could not cancel discovery", e);
+        }
+
+        BluetoothSocket socket = device.createRfcommSocketToServiceRecord(SERIAL_PORT_UUID);
+        try {
+            socket.connect();
+        } catch (IOException e) {
+            try {
+                socket.close();
+            } catch (IOException closeError) {
+                Log.e(TAG, "Error closing socket", closeError);
+            }
+            throw e;
+        }
+        return new Link() {
+            @Override
+            public OutputStream getOutputStream() throws IOException {
+                return socket.getOutputStream();
+            }
+
+            @Override
+            public InputStream getInputStream() throws IOException {
+                return socket.getInputStream();
+            }
+
+            @Override
+            public boolean isConnected() {
+                return socket.isConnected();
+            }
+
+            @Override
+            public void close() throws IOException {
+                socket.close();
+            }
+        };
+    }
+}
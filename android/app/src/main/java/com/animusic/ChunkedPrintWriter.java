@@ -0,0 +1,119 @@
+package com.animusic;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Streams one large payload to the printer in fixed-size chunks, flushing after each so the
+// printer's input buffer never has more than a chunk in flight. A chunk counts as acknowledged
+// once its flush returns. A write that hangs longer than the stall timeout drops the link. When
+// the link drops, the writer waits for the reconnect and resumes at the last acknowledged chunk
+// instead of restarting the job.
+public class ChunkedPrintWriter {
+    private static final String TAG = "ChunkedPrintWriter";
+
+    public static class Options {
+        public static final Options DEFAULT = new Options(4096, 0, 5_000, 5);
+
+        public final int chunkSize;
+        // Pause between chunks, for printers whose buffer drains slower than Bluetooth fills it
+        public final long pacingMs;
+        public final long stallTimeoutMs;
+        // Link drops tolerated per job before it fails
+        public final int maxResumes;
+
+        public Options(int chunkSize, long pacingMs, long stallTimeoutMs, int maxResumes) {
+            this.chunkSize = Math.max(256, chunkSize);
+            this.pacingMs = Math.max(0, pacingMs);
+            this.stallTimeoutMs = Math.max(500, stallTimeoutMs);
+            this.maxResumes = Math.max(0, maxResumes);
+        }
+    }
+
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "animusic-print-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final PrinterConnection connection;
+    private final PrinterMetrics metrics;
+    private volatile Options options = Options.DEFAULT;
+
+    public ChunkedPrintWriter(PrinterConnection connection, PrinterMetrics metrics) {
+        this.connection = connection;
+        this.metrics = metrics;
+    }
+
+    public void setOptions(Options options) {
+        this.options = options;
+    }
+
+    public Options getOptions() {
+        return options;
+    }
+
+    // Blocks until every chunk is acknowledged, or throws once resumes are exhausted
+    public void write(String jobId, byte[] data) throws IOException {
+        Options current = options;
+        // Only advanced after a chunk's flush returned
+        int[] acknowledged = {0};
+        int resumes = 0;
+
+        while (acknowledged[0] < data.length) {
+            try {
+                connection.execute(out -> {
+                    while (acknowledged[0] < data.length) {
+                        int offset = acknowledged[0];
+                        int length = Math.min(current.chunkSize, data.length - offset);
+                        // Closing the socket is the only way to unblock a hung RFCOMM write
+                        ScheduledFuture<?> stall = WATCHDOG.schedule(() -> {
+                            metrics.recordStall();
+                            connection.dropLink(new IOException("Write stalled for " + current.stallTimeoutMs + " ms"));
+                        }, current.stallTimeoutMs, TimeUnit.MILLISECONDS);
+                        long writeStart = System.nanoTime();
+                        long flushStart;
+                        try {
+                            out.write(data, offset, length);
+                            flushStart = System.nanoTime();
+                            out.flush();
+                        } finally {
+                            stall.cancel(false);
+                        }
+                        // Each chunk is its own write and flush on the link
+                        metrics.recordBatch(length, flushStart - writeStart, System.nanoTime() - flushStart);
+                        acknowledged[0] = offset + length;
+
+                        if (current.pacingMs > 0 && acknowledged[0] < data.length) {
+                            try {
+                                Thread.sleep(current.pacingMs);
+                            } catch (InterruptedException e) {
+                                // Leave the link alone, the caller sees the interrupt below
+                                Thread.currentThread().interrupt();
+                                return;
+                            }
+                        }
+                    }
+                });
+            } catch (IOException e) {
+                if (resumes >= current.maxResumes || connection.getState() == PrinterConnection.State.CLOSED) {
+                    throw e;
+                }
+                resumes++;
+                metrics.recordResume();
+                // The unacknowledged chunk may have partly reached the printer; resending it whole is
+                // the best we can do without a printer-side acknowledgement
+                Log.w(TAG, "Job " + jobId + " interrupted at " + acknowledged[0] + "/" + data.length
+                    + " bytes, resuming (" + resumes + "/" + current.maxResumes + "): " + e.getMessage());
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Job " + jobId + " interrupted at " + acknowledged[0] + " bytes");
+            }
+        }
+    }
+}
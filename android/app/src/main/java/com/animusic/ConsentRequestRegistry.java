@@ -0,0 +1,154 @@
+package com.animusic;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.content.IntentSender;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.facebook.react.bridge.ActivityEventListener;
+import com.facebook.react.bridge.LifecycleEventListener;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.UiThreadUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Tracks every system consent dialog (delete, trash, write requests) under its own request code,
+// so overlapping requests from any module each get their own answer.
+public class ConsentRequestRegistry implements ActivityEventListener, LifecycleEventListener {
+    private static final String TAG = "ConsentRequests";
+    // Activity request codes must fit in the lower 16 bits
+    private static final int FIRST_REQUEST_CODE = 0x4000;
+    private static final int LAST_REQUEST_CODE = 0x7FFF;
+    public static final long DEFAULT_TIMEOUT_MS = 5 * 60 * 1000;
+
+    public interface Callback {
+        void onResult(boolean approved);
+
+        void onCancelled(String code, String message);
+    }
+
+    private static final Map<ReactApplicationContext, ConsentRequestRegistry> registries = new WeakHashMap<>();
+
+    private final Map<Integer, PendingRequest> pending = new ConcurrentHashMap<>();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private int nextRequestCode = FIRST_REQUEST_CODE;
+
+    public static synchronized ConsentRequestRegistry getInstance(ReactApplicationContext context) {
+        ConsentRequestRegistry registry = registries.get(context);
+        if (registry == null) {
+            registry = new ConsentRequestRegistry();
+            context.addActivityEventListener(registry);
+            context.addLifecycleEventListener(registry);
+            registries.put(context, registry);
+        }
+        return registry;
+    }
+
+    private ConsentRequestRegistry() {
+    }
+
+    public void launch(Activity activity, IntentSender consent, Callback callback) {
+        launch(activity, consent, DEFAULT_TIMEOUT_MS, callback);
+    }
+
+    public void launch(Activity activity, IntentSender consent, long timeoutMs, Callback callback) {
+        int requestCode = register(callback);
+        PendingRequest request = pending.get(requestCode);
+        if (request == null) {
+            return;
+        }
+
+        request.timeout = () -> {
+            if (pending.remove(requestCode) != null) {
+                Log.w(TAG, "Consent request " + requestCode + " timed out");
+                callback.onCancelled("TIMEOUT", "No answer from the confirmation dialog");
+            }
+        };
+        handler.postDelayed(request.timeout, timeoutMs);
+
+        // The consent dialog has to be launched from the UI thread
+        UiThreadUtil.runOnUiThread(() -> {
+            try {
+                activity.startIntentSenderForResult(consent, requestCode, null, 0, 0, 0);
+                Log.d(TAG, "Consent dialog launched with request code " + requestCode);
+            } catch (IntentSender.SendIntentException e) {
+                Log.e(TAG, "Error launching consent dialog", e);
+                if (finish(requestCode) != null) {
+                    callback.onCancelled("ERROR", e.getMessage());
+                }
+            }
+        });
+    }
+
+    private synchronized int register(Callback callback) {
+        // Skip codes still in flight; with 16k codes a wrap-around collision means a leak
+        for (int attempts = 0; attempts <= LAST_REQUEST_CODE - FIRST_REQUEST_CODE; attempts++) {
+            int requestCode = nextRequestCode;
+            nextRequestCode = requestCode == LAST_REQUEST_CODE ? FIRST_REQUEST_CODE : requestCode + 1;
+            if (!pending.containsKey(requestCode)) {
+                pending.put(requestCode, new PendingRequest(callback));
+                return requestCode;
+            }
+        }
+        throw new IllegalStateException("Too many pending consent requests");
+    }
+
+    private PendingRequest finish(int requestCode) {
+        PendingRequest request = pending.remove(requestCode);
+        if (request != null && request.timeout != null) {
+            handler.removeCallbacks(request.timeout);
+        }
+        return request;
+    }
+
+    @Override
+    public void onActivityResult(Activity activity, int requestCode, int resultCode, Intent data) {
+        PendingRequest request = finish(requestCode);
+        if (request != null) {
+            Log.d(TAG, "Consent request " + requestCode + " answered: " + resultCode);
+            request.callback.onResult(resultCode == Activity.RESULT_OK);
+        }
+    }
+
+    @Override
+    public void onNewIntent(Intent intent) {
+    }
+
+    @Override
+    public void onHostResume() {
+    }
+
+    @Override
+    public void onHostPause() {
+    }
+
+    @Override
+    public void onHostDestroy() {
+        // Results for these dialogs will never arrive, release the JS awaits
+        List<Integer> requestCodes = new ArrayList<>(pending.keySet());
+        for (Integer requestCode : requestCodes) {
+            PendingRequest request = finish(requestCode);
+            if (request != null) {
+                request.callback.onCancelled("ACTIVITY_DESTROYED", "Activity destroyed before the dialog was answered");
+            }
+        }
+        if (!requestCodes.isEmpty()) {
+            Log.d(TAG, "Cancelled " + requestCodes.size() + " pending consent requests");
+        }
+    }
+
+    private static class PendingRequest {
+        final Callback callback;
+        volatile Runnable timeout;
+
+        PendingRequest(Callback callback) {
+            this.callback = callback;
+        }
+    }
+}
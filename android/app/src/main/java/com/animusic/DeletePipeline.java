@@ -0,0 +1,175 @@
+package com.animusic;
+
+import android.content.Context;
+import android.media.MediaScannerConnection;
+import android.net.Uri;
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+// Tries each delete strategy in order and stops at the first one that actually removed the file.
+// A strategy only counts once a single stat confirms the file is gone.
+public class DeletePipeline {
+    private static final String TAG = "DeletePipeline";
+
+    public enum Strategy {
+        MEDIA_STORE("mediaStore"),
+        DIRECT("direct"),
+        CANONICAL("canonical");
+
+        final String label;
+
+        Strategy(String label) {
+            this.label = label;
+        }
+    }
+
+    public static class Step {
+        public final Strategy strategy;
+        public final boolean succeeded;
+        public final long durationMs;
+        public final String error;
+
+        Step(Strategy strategy, boolean succeeded, long durationMs, String error) {
+            this.strategy = strategy;
+            this.succeeded = succeeded;
+            this.durationMs = durationMs;
+            this.error = error;
+        }
+    }
+
+    public static class Result {
+        public final String path;
+        public final boolean existed;
+        public final boolean deleted;
+        public final Strategy strategy;
+        public final List<Step> steps;
+        public final long totalMs;
+
+        Result(String path, boolean existed, boolean deleted, Strategy strategy, List<Step> steps, long totalMs) {
+            this.path = path;
+            this.existed = existed;
+            this.deleted = deleted;
+            this.strategy = strategy;
+            this.steps = steps;
+            this.totalMs = totalMs;
+        }
+
+        public WritableMap toWritableMap() {
+            WritableMap map = Arguments.createMap();
+            map.putString("path", path);
+            map.putBoolean("existed", existed);
+            map.putBoolean("deleted", deleted);
+            if (strategy != null) {
+                map.putString("strategy", strategy.label);
+            } else {
+                map.putNull("strategy");
+            }
+            map.putDouble("totalMs", totalMs);
+
+            WritableArray stepArray = Arguments.createArray();
+            for (Step step : steps) {
+                WritableMap stepMap = Arguments.createMap();
+                stepMap.putString("strategy", step.strategy.label);
+                stepMap.putBoolean("succeeded", step.succeeded);
+                stepMap.putDouble("durationMs", step.durationMs);
+                if (step.error != null) {
+                    stepMap.putString("error", step.error);
+                }
+                stepArray.pushMap(stepMap);
+            }
+            map.putArray("steps", stepArray);
+            return map;
+        }
+    }
+
+    private final Context context;
+
+    public DeletePipeline(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    public Result delete(String filePath) {
+        return run(filePath, Strategy.values());
+    }
+
+    // For files MediaStore is already known not to index
+    public Result deleteFromDisk(String filePath) {
+        return run(filePath, new Strategy[]{Strategy.DIRECT, Strategy.CANONICAL});
+    }
+
+    private Result run(String filePath, Strategy[] strategies) {
+        long start = System.nanoTime();
+        String path = MediaStoreIdCache.normalizePath(filePath);
+        File file = new File(path);
+        List<Step> steps = new ArrayList<>();
+
+        if (!file.exists()) {
+            Log.d(TAG, "File not found, considering it deleted: " + path);
+            return new Result(path, false, true, null, steps, elapsedMs(start));
+        }
+
+        MediaStoreIdCache idCache = MediaStoreIdCache.getInstance(context);
+
+        for (Strategy strategy : strategies) {
+            long stepStart = System.nanoTime();
+            boolean attempted;
+            String error = null;
+            try {
+                switch (strategy) {
+                    case MEDIA_STORE:
+                        Uri mediaUri = idCache.getUri(path);
+                        attempted = mediaUri != null
+                            && context.getContentResolver().delete(mediaUri, null, null) > 0;
+                        if (attempted) {
+                            idCache.remove(path);
+                        }
+                        break;
+                    case DIRECT:
+                        attempted = file.delete();
+                        if (!attempted && !file.canWrite()) {
+                            file.setWritable(true, false);
+                            attempted = file.delete();
+                        }
+                        break;
+                    case CANONICAL:
+                        File canonicalFile = file.getCanonicalFile();
+                        attempted = !canonicalFile.equals(file) && canonicalFile.delete();
+                        break;
+                    default:
+                        attempted = false;
+                }
+            } catch (Exception e) {
+                Log.e(TAG, strategy.label + " delete failed for " + path, e);
+                attempted = false;
+                error = e.getMessage();
+            }
+
+            // A strategy that reports success is confirmed with one stat
+            boolean succeeded = attempted && !file.exists();
+            steps.add(new Step(strategy, succeeded, elapsedMs(stepStart), error));
+            Log.d(TAG, strategy.label + " delete result: " + succeeded);
+
+            if (succeeded) {
+                if (strategy != Strategy.MEDIA_STORE) {
+                    // Let the scanner drop any stale row without blocking on it
+                    MediaScannerConnection.scanFile(context, new String[]{path}, null, null);
+                }
+                return new Result(path, true, true, strategy, steps, elapsedMs(start));
+            }
+        }
+
+        Log.e(TAG, "All delete strategies failed for " + path);
+        return new Result(path, true, false, null, steps, elapsedMs(start));
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
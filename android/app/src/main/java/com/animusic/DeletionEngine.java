@@ -0,0 +1,264 @@
+package com.animusic;
+
+import android.app.RecoverableSecurityException;
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.Context;
+import android.content.IntentSender;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Environment;
+import android.provider.MediaStore;
+import android.util.Log;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Single delete implementation behind MusicDelete, FileDeleteModule, SimpleDeleteModule,
+// MediaStoreDelete and StorageAccessModule. The API-level strategy is picked once; in the
+// common case a delete costs one provider call (the _ID usually comes from MediaStoreIdCache).
+public class DeletionEngine {
+    private static final String TAG = "DeletionEngine";
+
+    public enum Mode {
+        // Android 11+: MediaStore.createDeleteRequest consent dialog
+        CONSENT_REQUEST,
+        // Android 10: resolver.delete, RecoverableSecurityException asks for write access
+        RECOVERABLE,
+        // Android 9 and below: direct provider and file deletes
+        LEGACY
+    }
+
+    public static final Mode MODE = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+        ? Mode.CONSENT_REQUEST
+        : Build.VERSION.SDK_INT == Build.VERSION_CODES.Q ? Mode.RECOVERABLE : Mode.LEGACY;
+
+    public static final String STATUS_DELETED = "deleted";
+    public static final String STATUS_NOT_FOUND = "not_found";
+    public static final String STATUS_DENIED = "denied";
+    public static final String STATUS_FAILED = "failed";
+
+    public enum Status {
+        DELETED,
+        NOT_FOUND,
+        NEEDS_CONSENT,
+        FAILED
+    }
+
+    public static class Outcome {
+        public final String path;
+        public final Status status;
+        public final Uri uri;
+        public final IntentSender consent;
+        public final String error;
+
+        Outcome(String path, Status status, Uri uri, IntentSender consent, String error) {
+            this.path = path;
+            this.status = status;
+            this.uri = uri;
+            this.consent = consent;
+            this.error = error;
+        }
+
+        public boolean isDeleted() {
+            return status == Status.DELETED || status == Status.NOT_FOUND;
+        }
+    }
+
+    public static class BatchOutcome {
+        // Per-path status in the caller's order, see the STATUS_ constants
+        public final LinkedHashMap<String, String> statuses = new LinkedHashMap<>();
+        // Paths covered by the consent request, if one is needed
+        public final List<String> consentPaths = new ArrayList<>();
+        public final List<Uri> consentUris = new ArrayList<>();
+        public IntentSender consent;
+    }
+
+    private static DeletionEngine instance;
+
+    private final Context context;
+    private final MediaStoreIdCache idCache;
+    private final DeletePipeline pipeline;
+
+    public static synchronized DeletionEngine getInstance(Context context) {
+        if (instance == null) {
+            instance = new DeletionEngine(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private DeletionEngine(Context context) {
+        this.context = context;
+        this.idCache = MediaStoreIdCache.getInstance(context);
+        this.pipeline = new DeletePipeline(context);
+        Log.d(TAG, "Deletion mode: " + MODE);
+    }
+
+    public Outcome delete(String filePath) {
+        String path = MediaStoreIdCache.normalizePath(filePath);
+        try {
+            Uri uri = idCache.getUri(path);
+            if (uri == null) {
+                // MediaStore doesn't index it, only the file itself can go
+                return fromDisk(path);
+            }
+
+            ContentResolver resolver = context.getContentResolver();
+            switch (MODE) {
+                case CONSENT_REQUEST:
+                    if (!hasAllFilesAccess()) {
+                        ArrayList<Uri> uris = new ArrayList<>();
+                        uris.add(uri);
+                        IntentSender consent = MediaStore.createDeleteRequest(resolver, uris).getIntentSender();
+                        return new Outcome(path, Status.NEEDS_CONSENT, uri, consent, null);
+                    }
+                    return deleteRow(path, uri);
+                case RECOVERABLE:
+                    try {
+                        return deleteRow(path, uri);
+                    } catch (RecoverableSecurityException e) {
+                        IntentSender consent = e.getUserAction().getActionIntent().getIntentSender();
+                        return new Outcome(path, Status.NEEDS_CONSENT, uri, consent, null);
+                    }
+                default:
+                    return deleteRow(path, uri);
+            }
+        } catch (SecurityException e) {
+            Log.e(TAG, "Security exception deleting " + path, e);
+            return fromDisk(path);
+        } catch (Exception e) {
+            Log.e(TAG, "Error deleting " + path, e);
+            return new Outcome(path, Status.FAILED, null, null, e.getMessage());
+        }
+    }
+
+    // For callers that can't show a consent dialog: falls back to deleting the file directly
+    public Outcome deleteWithoutConsent(String filePath) {
+        Outcome outcome = delete(filePath);
+        if (outcome.status == Status.NEEDS_CONSENT) {
+            return fromDisk(outcome.path);
+        }
+        return outcome;
+    }
+
+    // Same delete as deleteWithoutConsent, but keeps each strategy's result and timing for the caller
+    public DeletePipeline.Result deleteWithReport(String filePath) {
+        String path = MediaStoreIdCache.normalizePath(filePath);
+        DeletePipeline.Result result = pipeline.delete(path);
+        if (result.deleted) {
+            idCache.remove(path);
+        }
+        return result;
+    }
+
+    // Call once the user approved the consent returned by delete()
+    public Outcome completeAfterConsent(Outcome pending) {
+        idCache.remove(pending.path);
+        if (MODE == Mode.RECOVERABLE && pending.uri != null) {
+            // On Android 10 the dialog only grants write access, the delete still has to happen
+            try {
+                return deleteRow(pending.path, pending.uri);
+            } catch (Exception e) {
+                Log.e(TAG, "Delete after consent failed for " + pending.path, e);
+                return new Outcome(pending.path, Status.FAILED, pending.uri, null, e.getMessage());
+            }
+        }
+        return new Outcome(pending.path, Status.DELETED, pending.uri, null, null);
+    }
+
+    public BatchOutcome deleteBatch(Collection<String> filePaths) {
+        BatchOutcome batch = new BatchOutcome();
+        for (String filePath : filePaths) {
+            batch.statuses.put(MediaStoreIdCache.normalizePath(filePath), STATUS_FAILED);
+        }
+        if (batch.statuses.isEmpty()) {
+            return batch;
+        }
+
+        Map<String, Long> ids = idCache.getIds(batch.statuses.keySet());
+        Log.d(TAG, "Found " + ids.size() + " of " + batch.statuses.size() + " files in MediaStore");
+
+        for (String path : batch.statuses.keySet()) {
+            if (!ids.containsKey(path)) {
+                batch.statuses.put(path, statusOf(fromDisk(path)));
+            }
+        }
+
+        boolean singleConsent = MODE == Mode.CONSENT_REQUEST && !hasAllFilesAccess();
+        for (Map.Entry<String, Long> entry : ids.entrySet()) {
+            String path = entry.getKey();
+            Uri uri = ContentUris.withAppendedId(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, entry.getValue());
+            if (singleConsent) {
+                batch.consentPaths.add(path);
+                batch.consentUris.add(uri);
+                continue;
+            }
+            try {
+                batch.statuses.put(path, statusOf(deleteRow(path, uri)));
+            } catch (SecurityException e) {
+                // No batch consent before Android 11, fall back to the file itself
+                Log.e(TAG, "Security exception deleting " + path, e);
+                batch.statuses.put(path, statusOf(fromDisk(path)));
+            }
+        }
+
+        if (!batch.consentUris.isEmpty()) {
+            // One system dialog covering every file in the batch
+            batch.consent = MediaStore.createDeleteRequest(context.getContentResolver(), batch.consentUris).getIntentSender();
+        }
+        return batch;
+    }
+
+    // Records the user's answer to a batch consent dialog
+    public void completeBatch(BatchOutcome batch, boolean approved) {
+        for (String path : batch.consentPaths) {
+            batch.statuses.put(path, approved ? STATUS_DELETED : STATUS_DENIED);
+            if (approved) {
+                idCache.remove(path);
+            }
+        }
+    }
+
+    private Outcome deleteRow(String path, Uri uri) {
+        int rows = context.getContentResolver().delete(uri, null, null);
+        idCache.remove(path);
+        if (rows > 0 && !hasLeftoverFile(path)) {
+            return new Outcome(path, Status.DELETED, uri, null, null);
+        }
+        // Row is gone (or never went) but the file is still there
+        return fromDisk(path);
+    }
+
+    private boolean hasLeftoverFile(String path) {
+        // The provider removes the file itself from Android 10 on
+        return MODE == Mode.LEGACY && new File(path).exists();
+    }
+
+    private Outcome fromDisk(String path) {
+        DeletePipeline.Result result = pipeline.deleteFromDisk(path);
+        if (!result.existed) {
+            return new Outcome(path, Status.NOT_FOUND, null, null, null);
+        }
+        return new Outcome(path, result.deleted ? Status.DELETED : Status.FAILED, null, null,
+            result.deleted ? null : "Could not delete file");
+    }
+
+    private static String statusOf(Outcome outcome) {
+        switch (outcome.status) {
+            case DELETED:
+                return STATUS_DELETED;
+            case NOT_FOUND:
+                return STATUS_NOT_FOUND;
+            default:
+                return STATUS_FAILED;
+        }
+    }
+
+    static boolean hasAllFilesAccess() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R && Environment.isExternalStorageManager();
+    }
+}
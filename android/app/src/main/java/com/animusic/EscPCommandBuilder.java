@@ -0,0 +1,266 @@
+package com.animusic;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+// Builds ESC/P2 byte streams for the dot matrix printers: text styles, native barcodes and
+// 24-pin bit images (QR codes and dithered pictures). Builders are pooled with their command
+// buffer and image scratch, so a job allocates its final byte array plus whatever the caller
+// needs to decode images.
+public class EscPCommandBuilder {
+    private static final byte ESC = 0x1B;
+    private static final int INITIAL_CAPACITY = 4 * 1024;
+    // Builders that grew past this are dropped instead of pooled
+    static final int MAX_POOLED_CAPACITY = 256 * 1024;
+    static final int MAX_POOLED = 4;
+    // ESC * 39: 24-pin triple density, 180 dpi, three bytes per column
+    private static final int BIT_IMAGE_MODE = 39;
+    private static final int BAND_HEIGHT = 24;
+
+    public static final int ALIGN_LEFT = 0;
+    public static final int ALIGN_CENTER = 1;
+    public static final int ALIGN_RIGHT = 2;
+
+    // ESC ( B barcode type codes
+    public static final int BARCODE_EAN13 = 0;
+    public static final int BARCODE_EAN8 = 1;
+    public static final int BARCODE_ITF = 2;
+    public static final int BARCODE_UPCA = 3;
+    public static final int BARCODE_UPCE = 4;
+    public static final int BARCODE_CODE39 = 5;
+    public static final int BARCODE_CODE128 = 6;
+
+    private static final ArrayDeque<EscPCommandBuilder> pool = new ArrayDeque<>();
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int count;
+    private Charset charset = StandardCharsets.UTF_8;
+    // Scratch rows for dithering, kept with the builder between jobs
+    private int[] errorRow = new int[0];
+    private int[] nextErrorRow = new int[0];
+    // Dot grid handed to bitImage, fully overwritten by each image
+    private boolean[] dots = new boolean[0];
+
+    public static EscPCommandBuilder acquire() {
+        synchronized (pool) {
+            EscPCommandBuilder builder = pool.pollFirst();
+            if (builder != null) {
+                return builder;
+            }
+        }
+        return new EscPCommandBuilder();
+    }
+
+    public static void release(EscPCommandBuilder builder) {
+        builder.reset();
+        if (builder.buffer.length > MAX_POOLED_CAPACITY) {
+            return;
+        }
+        if (builder.dots.length > MAX_POOLED_CAPACITY) {
+            // Keep the builder but not the grid of one unusually large picture
+            builder.dots = new boolean[0];
+        }
+        synchronized (pool) {
+            if (pool.size() < MAX_POOLED) {
+                pool.addFirst(builder);
+            }
+        }
+    }
+
+    public EscPCommandBuilder reset() {
+        count = 0;
+        charset = StandardCharsets.UTF_8;
+        return this;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public byte[] toByteArray() {
+        byte[] result = new byte[count];
+        System.arraycopy(buffer, 0, result, 0, count);
+        return result;
+    }
+
+    public EscPCommandBuilder charset(Charset charset) {
+        this.charset = charset;
+        return this;
+    }
+
+    // ESC @
+    public EscPCommandBuilder initialize() {
+        return write(ESC, '@');
+    }
+
+    public EscPCommandBuilder text(String text) {
+        int length = text.length();
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                // Rare non-ASCII text goes through the encoder, everything else is copied as is
+                return raw(text.substring(i).getBytes(charset));
+            }
+            buffer[count++] = (byte) c;
+        }
+        return this;
+    }
+
+    public EscPCommandBuilder line(String text) {
+        return text(text).write('\r', '\n');
+    }
+
+    // ESC E / ESC F
+    public EscPCommandBuilder bold(boolean on) {
+        return write(ESC, on ? 'E' : 'F');
+    }
+
+    // ESC - n
+    public EscPCommandBuilder underline(boolean on) {
+        return write(ESC, '-', on ? 1 : 0);
+    }
+
+    // ESC W n
+    public EscPCommandBuilder doubleWidth(boolean on) {
+        return write(ESC, 'W', on ? 1 : 0);
+    }
+
+    // ESC a n
+    public EscPCommandBuilder align(int alignment) {
+        return write(ESC, 'a', alignment);
+    }
+
+    public EscPCommandBuilder feed(int lines) {
+        ensureCapacity(lines * 2);
+        for (int i = 0; i < lines; i++) {
+            buffer[count++] = '\r';
+            buffer[count++] = '\n';
+        }
+        return this;
+    }
+
+    public EscPCommandBuilder formFeed() {
+        return write(0x0C);
+    }
+
+    // ESC ( B nL nH k m s v1 v2 c data; height is in 1/180 inch
+    public EscPCommandBuilder barcode(int type, String data, int height) {
+        byte[] bytes = data.getBytes(StandardCharsets.US_ASCII);
+        int length = bytes.length + 6;
+        // Module width 2 dots, no space adjustment, human readable text below, check digit added
+        write(ESC, '(', 'B', length & 0xFF, (length >> 8) & 0xFF, type, 2, 0, height & 0xFF, (height >> 8) & 0xFF, 0x02);
+        return raw(bytes).write('\r', '\n');
+    }
+
+    public EscPCommandBuilder qrCode(String data, int moduleSize) throws WriterException {
+        Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+        hints.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.M);
+        hints.put(EncodeHintType.MARGIN, 1);
+        BitMatrix matrix = new QRCodeWriter().encode(data, BarcodeFormat.QR_CODE, 0, 0, hints);
+
+        int size = matrix.getWidth() * moduleSize;
+        boolean[] dots = dotBuffer(size * size);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                dots[y * size + x] = matrix.get(x / moduleSize, y / moduleSize);
+            }
+        }
+        return bitImage(dots, size, size);
+    }
+
+    // Floyd-Steinberg dithers 0-255 luminance values (0 = black) and prints them as a bit image
+    public EscPCommandBuilder ditheredImage(int[] luminance, int width, int height) {
+        if (errorRow.length < width + 2) {
+            errorRow = new int[width + 2];
+            nextErrorRow = new int[width + 2];
+        }
+        Arrays.fill(errorRow, 0, width + 2, 0);
+
+        boolean[] dots = dotBuffer(width * height);
+        for (int y = 0; y < height; y++) {
+            Arrays.fill(nextErrorRow, 0, width + 2, 0);
+            for (int x = 0; x < width; x++) {
+                int value = luminance[y * width + x] + errorRow[x + 1] / 16;
+                boolean black = value < 128;
+                dots[y * width + x] = black;
+                int error = value - (black ? 0 : 255);
+                errorRow[x + 2] += error * 7;
+                nextErrorRow[x] += error * 3;
+                nextErrorRow[x + 1] += error * 5;
+                nextErrorRow[x + 2] += error;
+            }
+            int[] swap = errorRow;
+            errorRow = nextErrorRow;
+            nextErrorRow = swap;
+        }
+        return bitImage(dots, width, height);
+    }
+
+    // Prints dots (row-major, true = black) in 24-dot bands with ESC *
+    public EscPCommandBuilder bitImage(boolean[] dots, int width, int height) {
+        // ESC 3 24: advance exactly one band per line so bands touch
+        write(ESC, '3', BAND_HEIGHT);
+        for (int top = 0; top < height; top += BAND_HEIGHT) {
+            write(ESC, '*', BIT_IMAGE_MODE, width & 0xFF, (width >> 8) & 0xFF);
+            ensureCapacity(width * 3 + 2);
+            for (int x = 0; x < width; x++) {
+                for (int slice = 0; slice < 3; slice++) {
+                    int bits = 0;
+                    for (int bit = 0; bit < 8; bit++) {
+                        int y = top + slice * 8 + bit;
+                        if (y < height && dots[y * width + x]) {
+                            bits |= 0x80 >> bit;
+                        }
+                    }
+                    buffer[count++] = (byte) bits;
+                }
+            }
+            buffer[count++] = '\r';
+            buffer[count++] = '\n';
+        }
+        // ESC 2: back to the default 1/6 inch line spacing
+        return write(ESC, '2');
+    }
+
+    public EscPCommandBuilder raw(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+        return this;
+    }
+
+    private EscPCommandBuilder write(int... bytes) {
+        ensureCapacity(bytes.length);
+        for (int b : bytes) {
+            buffer[count++] = (byte) b;
+        }
+        return this;
+    }
+
+    private boolean[] dotBuffer(int size) {
+        if (dots.length < size) {
+            dots = new boolean[size];
+        }
+        return dots;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (count + extra > buffer.length) {
+            byte[] grown = new byte[Math.max(buffer.length * 2, count + extra)];
+            System.arraycopy(buffer, 0, grown, 0, count);
+            buffer = grown;
+        }
+    }
+}
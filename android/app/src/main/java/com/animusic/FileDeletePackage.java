@@ -16,7 +16,9 @@ public class FileDeletePackage implements ReactPackage {
             new FileDeleteModule(reactContext),
             new StorageAccessModule(reactContext),
             new SimpleDeleteModule(reactContext),
-            new MediaStoreDeleteModule(reactContext)
+            new MediaStoreDeleteModule(reactContext),
+            new MediaLibraryModule(reactContext),
+            new MediaTrashModule(reactContext)
         );
     }
 
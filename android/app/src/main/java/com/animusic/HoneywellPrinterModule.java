@@ -3,6 +3,10 @@ package com.animusic;
 import android.bluetooth.BluetoothAdapter;
 import android.bluetooth.BluetoothDevice;
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+import android.util.Base64;
 import android.util.Log;
 
 import com.facebook.react.bridge.Arguments;
@@ -14,24 +18,49 @@ import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
 
-import java.io.IOException;
-import java.io.OutputStream;
-import java.util.Set;
-import java.util.UUID;
-import java.nio.charset.StandardCharsets;
+import com.google.zxing.WriterException;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class HoneywellPrinterModule extends ReactContextBaseJavaModule {
     private static final String TAG = "HoneywellPrinter";
-    private static final UUID PRINTER_UUID = UUID.fromString("00001101-0000-1000-8000-00805F9B34FB"); // Standard Serial Port UUID
+    private static final String CONNECTION_EVENT = "PrinterConnectionChanged";
+    private static final String JOB_EVENT = "PrintJobFinished";
+    private static final String QUEUE_EVENT = "PrintQueueState";
+    private static final String STATUS_EVENT = "PrinterStatusChanged";
+    private static final String METRICS_EVENT = "PrinterMetrics";
+    private static final String DISCOVERED_EVENT = "PrinterDiscovered";
+    private static final String DISCOVERY_FINISHED_EVENT = "PrinterDiscoveryFinished";
+    // 8 inch carriage at 180 dpi
+    private static final int MAX_IMAGE_WIDTH = 1440;
     
     private BluetoothAdapter bluetoothAdapter;
-    private BluetoothDevice connectedDevice;
-    private OutputStream outputStream;
+    private final PrinterDiscovery discovery;
+    // One session per connected printer address
+    private final Map<String, PrinterSession> sessions = new ConcurrentHashMap<>();
+    private final PrintRouter router = new PrintRouter();
+    // Native job building time (printJob), to tell it apart from time spent on the link
+    private final PrinterMetrics.Histogram buildLatency = new PrinterMetrics.Histogram();
+    private ScheduledExecutorService metricsTimer;
+    private volatile ChunkedPrintWriter.Options streamingOptions = ChunkedPrintWriter.Options.DEFAULT;
+    private final AtomicLong jobCounter = new AtomicLong();
+    private final NativeIoExecutor.IoQueue ioQueue;
     
     public HoneywellPrinterModule(ReactApplicationContext reactContext) {
         super(reactContext);
         bluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
+        ioQueue = NativeIoExecutor.getInstance().queue(getName());
+        discovery = bluetoothAdapter != null ? new PrinterDiscovery(reactContext, bluetoothAdapter) : null;
     }
 
     @Override
@@ -52,25 +81,14 @@ public class HoneywellPrinterModule extends ReactContextBaseJavaModule {
                 return;
             }
 
+            List<PrinterDiscovery.Printer> found = discovery.getCached(PrinterDiscovery.DEFAULT_TTL_MS);
+            if (found.isEmpty()) {
+                found = discovery.refreshBonded();
+            }
+
             WritableArray printers = Arguments.createArray();
-            Set<BluetoothDevice> pairedDevices = bluetoothAdapter.getBondedDevices();
-            
-            for (BluetoothDevice device : pairedDevices) {
-                String deviceName = device.getName();
-                if (deviceName != null && (
-                    deviceName.toLowerCase().contains("honeywell") ||
-                    deviceName.toLowerCase().contains("6824") ||
-                    deviceName.toLowerCase().contains("pc42") ||
-                    deviceName.toLowerCase().contains("printer")
-                )) {
-                    WritableMap printer = Arguments.createMap();
-                    printer.putString("id", device.getAddress());
-                    printer.putString("name", deviceName);
-                    printer.putString("address", device.getAddress());
-                    printer.putString("model", deviceName);
-                    printer.putBoolean("isConnected", false);
-                    printers.pushMap(printer);
-                }
+            for (PrinterDiscovery.Printer printer : found) {
+                printers.pushMap(toPrinterMap(printer));
             }
             
             promise.resolve(printers);
@@ -82,6 +100,74 @@ public class HoneywellPrinterModule extends ReactContextBaseJavaModule {
         }
     }
 
+    // Resolves with cached printers once the scan has started; bonded and newly found printers
+    // stream in as PrinterDiscovered events, followed by PrinterDiscoveryFinished
+    @ReactMethod
+    public void startPrinterDiscovery(Promise promise) {
+        try {
+            if (bluetoothAdapter == null) {
+                promise.reject("BLUETOOTH_NOT_AVAILABLE", "Bluetooth not available on this device");
+                return;
+            }
+
+            if (!bluetoothAdapter.isEnabled()) {
+                promise.reject("BLUETOOTH_DISABLED", "Bluetooth is disabled");
+                return;
+            }
+
+            WritableArray cached = Arguments.createArray();
+            for (PrinterDiscovery.Printer printer : discovery.getCached(PrinterDiscovery.DEFAULT_TTL_MS)) {
+                cached.pushMap(toPrinterMap(printer));
+            }
+
+            discovery.startScan(new PrinterDiscovery.Listener() {
+                @Override
+                public void onPrinterFound(PrinterDiscovery.Printer printer) {
+                    sendEvent(DISCOVERED_EVENT, toPrinterMap(printer));
+                }
+
+                @Override
+                public void onDiscoveryFinished(int found) {
+                    WritableMap event = Arguments.createMap();
+                    event.putInt("found", found);
+                    sendEvent(DISCOVERY_FINISHED_EVENT, event);
+                }
+            });
+            // Only settled once the scan is running, so a failure to start still rejects
+            promise.resolve(cached);
+        } catch (SecurityException e) {
+            promise.reject("PERMISSION_DENIED", "Bluetooth permission denied: " + e.getMessage());
+        } catch (Exception e) {
+            promise.reject("DISCOVERY_FAILED", "Failed to start discovery: " + e.getMessage());
+        }
+    }
+
+    @ReactMethod
+    public void stopPrinterDiscovery(Promise promise) {
+        try {
+            discovery.stopScan();
+            promise.resolve(true);
+        } catch (SecurityException e) {
+            promise.reject("PERMISSION_DENIED", "Bluetooth permission denied: " + e.getMessage());
+        }
+    }
+
+    private WritableMap toPrinterMap(PrinterDiscovery.Printer printer) {
+        PrinterSession session = sessions.get(printer.address);
+        WritableMap map = Arguments.createMap();
+        map.putString("id", printer.address);
+        map.putString("name", printer.name);
+        map.putString("address", printer.address);
+        map.putString("model", printer.name);
+        map.putBoolean("bonded", printer.bonded);
+        if (printer.rssi != Short.MIN_VALUE) {
+            map.putInt("rssi", printer.rssi);
+        }
+        map.putBoolean("isConnected", session != null
+            && session.getConnection().getState() == PrinterConnection.State.CONNECTED);
+        return map;
+    }
+
     @ReactMethod
     public void connectToPrinter(String deviceAddress, Promise promise) {
         try {
@@ -96,23 +182,42 @@ public class HoneywellPrinterModule extends ReactContextBaseJavaModule {
                 return;
             }
 
-            // Close existing connection
-            disconnect();
-
-            // Create Bluetooth socket
-            try {
-                var socket = device.createRfcommSocketToServiceRecord(PRINTER_UUID);
-                socket.connect();
-                outputStream = socket.getOutputStream();
-                connectedDevice = device;
-                
-                Log.d(TAG, "Connected to printer: " + device.getName());
+            String address = device.getAddress();
+            PrinterSession existing = sessions.get(address);
+            if (existing != null && existing.getConnection().isUsable()) {
+                // Link is still warm (or already coming back), no new handshake needed
                 promise.resolve(true);
-                
-            } catch (IOException e) {
-                Log.e(TAG, "Failed to connect to printer", e);
-                promise.reject("CONNECTION_FAILED", "Failed to connect: " + e.getMessage());
+                return;
             }
+            if (existing != null) {
+                closeSession(address);
+            }
+
+            // Other printers stay connected; each address gets its own session
+            PrinterSession session = new PrinterSession(
+                new BluetoothPrinterTransport(bluetoothAdapter, device), sessionListener);
+            session.setStreamingOptions(streamingOptions);
+            sessions.put(address, session);
+            session.connect(new PrinterConnection.ConnectCallback() {
+                @Override
+                public void onConnected() {
+                    Log.d(TAG, "Connected to printer: " + session.getConnection().getName()
+                        + " (" + sessions.size() + " connected)");
+                    promise.resolve(true);
+                }
+
+                @Override
+                public void onFailed(Exception e) {
+                    if (sessions.remove(address, session)) {
+                        session.close();
+                    }
+                    if (e instanceof SecurityException) {
+                        promise.reject("PERMISSION_DENIED", "Bluetooth permission denied: " + e.getMessage());
+                    } else {
+                        promise.reject("CONNECTION_FAILED", "Failed to connect: " + e.getMessage());
+                    }
+                }
+            });
             
         } catch (SecurityException e) {
             promise.reject("PERMISSION_DENIED", "Bluetooth permission denied: " + e.getMessage());
@@ -131,88 +236,554 @@ public class HoneywellPrinterModule extends ReactContextBaseJavaModule {
         }
     }
 
+    @ReactMethod
+    public void disconnectPrinter(String deviceAddress, Promise promise) {
+        promise.resolve(closeSession(deviceAddress));
+    }
+
+    // Disconnects every printer
     private void disconnect() {
-        try {
-            if (outputStream != null) {
-                outputStream.close();
-                outputStream = null;
-            }
-            connectedDevice = null;
-        } catch (IOException e) {
-            Log.e(TAG, "Error closing connection", e);
+        for (String address : new ArrayList<>(sessions.keySet())) {
+            closeSession(address);
+        }
+    }
+
+    private boolean closeSession(String address) {
+        PrinterSession session = sessions.remove(address);
+        if (session == null) {
+            return false;
         }
+        session.close();
+        return true;
     }
 
+    // "roundRobin" or "leastLoaded", for jobs that don't name a printer
     @ReactMethod
-    public void printText(String text, ReadableMap options, Promise promise) {
-        if (outputStream == null) {
-            promise.reject("NOT_CONNECTED", "Printer not connected");
-            return;
+    public void setRoutingPolicy(String policy, Promise promise) {
+        router.setPolicy(PrintRouter.parsePolicy(policy));
+        promise.resolve(router.getPolicy() == PrintRouter.Policy.ROUND_ROBIN ? "roundRobin" : "leastLoaded");
+    }
+
+    // Tunes how jobs larger than one batch are streamed: {chunkSize, pacingMs, stallTimeoutMs, maxResumes}.
+    // Missing keys keep their current value; applies to connected and future printers.
+    @ReactMethod
+    public void setStreamingOptions(ReadableMap options, Promise promise) {
+        ChunkedPrintWriter.Options current = streamingOptions;
+        ChunkedPrintWriter.Options updated = new ChunkedPrintWriter.Options(
+            options.hasKey("chunkSize") ? options.getInt("chunkSize") : current.chunkSize,
+            options.hasKey("pacingMs") ? (long) options.getDouble("pacingMs") : current.pacingMs,
+            options.hasKey("stallTimeoutMs") ? (long) options.getDouble("stallTimeoutMs") : current.stallTimeoutMs,
+            options.hasKey("maxResumes") ? options.getInt("maxResumes") : current.maxResumes);
+        streamingOptions = updated;
+        for (PrinterSession session : sessions.values()) {
+            session.setStreamingOptions(updated);
         }
 
-        try {
-            // Send ESC/P commands for dot matrix printer
-            // ESC @ - Initialize printer
-            outputStream.write(new byte[]{0x1B, 0x40});
-            
-            // Print the text
-            byte[] textBytes = text.getBytes(StandardCharsets.UTF_8);
-            outputStream.write(textBytes);
-            
-            // Form feed to eject paper
-            outputStream.write(0x0C);
-            
-            outputStream.flush();
-            
+        WritableMap result = Arguments.createMap();
+        result.putInt("chunkSize", updated.chunkSize);
+        result.putDouble("pacingMs", updated.pacingMs);
+        result.putDouble("stallTimeoutMs", updated.stallTimeoutMs);
+        result.putInt("maxResumes", updated.maxResumes);
+        promise.resolve(result);
+    }
+
+    @Override
+    public void invalidate() {
+        if (discovery != null) {
+            try {
+                discovery.stopScan();
+            } catch (SecurityException e) {
+                Log.e(TAG, "Could not stop discovery", e);
+            }
+        }
+        stopMetricsTimer();
+        disconnect();
+        super.invalidate();
+    }
+
+    private final PrinterSession.Listener sessionListener = new PrinterSession.Listener() {
+        @Override
+        public void onConnectionStateChanged(PrinterSession session, PrinterConnection.State state) {
+            Log.d(TAG, "Printer " + session.getAddress() + " is " + state);
+            WritableMap event = Arguments.createMap();
+            event.putString("address", session.getAddress());
+            event.putString("state", state.name().toLowerCase());
+            sendEvent(CONNECTION_EVENT, event);
+        }
+
+        @Override
+        public void onJobFinished(PrinterSession session, PrintSpooler.Job job, Exception error) {
+            WritableMap event = Arguments.createMap();
+            event.putString("jobId", job.id);
+            event.putString("printer", session.getAddress());
+            event.putBoolean("success", error == null);
+            event.putInt("bytes", job.data.length);
+            if (error != null) {
+                event.putString("error", error.getMessage());
+            }
+            sendEvent(JOB_EVENT, event);
+        }
+
+        @Override
+        public void onBackpressure(PrinterSession session, boolean saturated, int queuedJobs, long queuedBytes) {
+            WritableMap event = Arguments.createMap();
+            event.putString("printer", session.getAddress());
+            event.putBoolean("saturated", saturated);
+            event.putInt("queuedJobs", queuedJobs);
+            event.putDouble("queuedBytes", queuedBytes);
+            sendEvent(QUEUE_EVENT, event);
+        }
+
+        @Override
+        public void onStatusChanged(PrinterSession session, PrinterStatusReader.Status status) {
+            WritableMap event = toStatusMap(status, true);
+            event.putString("address", session.getAddress());
+            sendEvent(STATUS_EVENT, event);
+        }
+    };
+
+    private static WritableMap toStatusMap(PrinterStatusReader.Status status, boolean connected) {
+        WritableMap map = Arguments.createMap();
+        map.putBoolean("online", connected && status.online);
+        map.putBoolean("responsive", status.responsive);
+        map.putString("paperLevel", status.paperLevel());
+        map.putBoolean("canPrint", connected && status.canPrint());
+
+        WritableArray errors = Arguments.createArray();
+        if (!connected) {
+            errors.pushString("Not connected");
+        } else {
+            if (!status.online) errors.pushString("Offline");
+            if (status.paperOut) errors.pushString("Out of paper");
+            if (status.coverOpen) errors.pushString("Cover open");
+            if (status.error) errors.pushString("Printer error");
+        }
+        map.putArray("errors", errors);
+        return map;
+    }
+
+    private void sendEvent(String eventName, WritableMap params) {
+        // Spooler and connection threads outlive a JS reload, late events have nowhere to go
+        ReactApplicationContext context = getReactApplicationContext();
+        if (context.hasActiveReactInstance()) {
+            context.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class).emit(eventName, params);
+        }
+    }
+
+    @ReactMethod
+    public void addListener(String eventName) {
+        // Required for NativeEventEmitter
+    }
+
+    @ReactMethod
+    public void removeListeners(double count) {
+        // Required for NativeEventEmitter
+    }
+
+    @ReactMethod
+    public void printText(String text, ReadableMap options, Promise promise) {
+        submitJob(encodeText(text), options, (job, error) -> {
+            if (error != null) {
+                Log.e(TAG, "Print failed", error);
+                promise.reject("PRINT_FAILED", "Print failed: " + error.getMessage());
+                return;
+            }
             WritableMap result = Arguments.createMap();
             result.putBoolean("success", true);
+            result.putString("jobId", job.id);
             promise.resolve(result);
-            
-        } catch (IOException e) {
-            Log.e(TAG, "Print failed", e);
-            WritableMap result = Arguments.createMap();
-            result.putBoolean("success", false);
-            result.putString("error", e.getMessage());
-            promise.reject("PRINT_FAILED", "Print failed: " + e.getMessage());
-        }
+        }, promise);
     }
 
     @ReactMethod
     public void sendRawData(ReadableArray commandsArray, Promise promise) {
-        if (outputStream == null) {
-            promise.reject("NOT_CONNECTED", "Printer not connected");
+        byte[] commands = new byte[commandsArray.size()];
+        for (int i = 0; i < commandsArray.size(); i++) {
+            commands[i] = (byte) commandsArray.getInt(i);
+        }
+
+        submitJob(commands, null, (job, error) -> {
+            if (error != null) {
+                Log.e(TAG, "Failed to send raw data", error);
+                promise.reject("SEND_FAILED", "Failed to send raw data: " + error.getMessage());
+            } else {
+                promise.resolve(true);
+            }
+        }, promise);
+    }
+
+    // Same as sendRawData without boxing every byte as a JS number on the way over.
+    // Logos and bitmap labels run to tens of kilobytes.
+    @ReactMethod
+    public void sendRawBase64(String base64Data, Promise promise) {
+        byte[] commands;
+        try {
+            int comma = base64Data.indexOf(',');
+            // Accept data: URIs as well as bare base64
+            String payload = base64Data.startsWith("data:") && comma >= 0 ? base64Data.substring(comma + 1) : base64Data;
+            commands = Base64.decode(payload, Base64.DEFAULT);
+        } catch (IllegalArgumentException e) {
+            promise.reject("INVALID_DATA", "Invalid base64 data: " + e.getMessage());
             return;
         }
 
+        submitJob(commands, null, (job, error) -> {
+            if (error != null) {
+                Log.e(TAG, "Failed to send raw data", error);
+                promise.reject("SEND_FAILED", "Failed to send raw data: " + error.getMessage());
+            } else {
+                promise.resolve(commands.length);
+            }
+        }, promise);
+    }
+
+    // Fire-and-forget variant for bulk runs: resolves with the job id once queued,
+    // completion arrives as a PrintJobFinished event
+    @ReactMethod
+    public void enqueuePrintText(String text, ReadableMap options, Promise promise) {
+        String jobId = submitJob(encodeText(text), options, null, promise);
+        if (jobId != null) {
+            promise.resolve(jobId);
+        }
+    }
+
+    private static byte[] encodeText(String text) {
+        // ESC @ - Initialize printer, then the text, then a form feed to eject paper
+        EscPCommandBuilder builder = EscPCommandBuilder.acquire();
         try {
-            byte[] commands = new byte[commandsArray.size()];
-            for (int i = 0; i < commandsArray.size(); i++) {
-                commands[i] = (byte) commandsArray.getInt(i);
+            return builder.initialize().text(text).formFeed().toByteArray();
+        } finally {
+            EscPCommandBuilder.release(builder);
+        }
+    }
+
+    // Builds the ESC/P stream natively from a compact job description:
+    // {items: [{type: 'text' | 'feed' | 'barcode' | 'qr' | 'image' | 'raw', ...}], initialize, formFeed, copies}
+    @ReactMethod
+    public void printJob(ReadableMap job, Promise promise) {
+        ioQueue.submit(promise, () -> {
+            byte[] data;
+            try {
+                long start = System.nanoTime();
+                data = compileJob(job);
+                buildLatency.recordNanos(System.nanoTime() - start);
+            } catch (Exception e) {
+                Log.e(TAG, "Invalid print job", e);
+                promise.reject("INVALID_JOB", "Invalid print job: " + e.getMessage());
+                return;
             }
-            
-            outputStream.write(commands);
-            outputStream.flush();
-            
-            promise.resolve(true);
-            
-        } catch (IOException e) {
-            Log.e(TAG, "Failed to send raw data", e);
-            promise.reject("SEND_FAILED", "Failed to send raw data: " + e.getMessage());
+
+            String jobId = submitJob(data, job, (finished, error) -> {
+                if (error != null) {
+                    promise.reject("PRINT_FAILED", "Print failed: " + error.getMessage());
+                    return;
+                }
+                WritableMap result = Arguments.createMap();
+                result.putBoolean("success", true);
+                result.putString("jobId", finished.id);
+                result.putInt("bytes", finished.data.length);
+                promise.resolve(result);
+            }, promise);
+            if (jobId != null) {
+                Log.d(TAG, "Queued print job " + jobId + " (" + data.length + " bytes)");
+            }
+        });
+    }
+
+    private static byte[] compileJob(ReadableMap job) throws WriterException {
+        EscPCommandBuilder builder = EscPCommandBuilder.acquire();
+        try {
+            if (!job.hasKey("initialize") || job.getBoolean("initialize")) {
+                builder.initialize();
+            }
+            if (job.hasKey("charset")) {
+                builder.charset(Charset.forName(job.getString("charset")));
+            }
+
+            ReadableArray items = job.hasKey("items") ? job.getArray("items") : null;
+            for (int i = 0; items != null && i < items.size(); i++) {
+                appendItem(builder, items.getMap(i));
+            }
+
+            if (!job.hasKey("formFeed") || job.getBoolean("formFeed")) {
+                builder.formFeed();
+            }
+
+            int copies = job.hasKey("copies") ? Math.max(1, job.getInt("copies")) : 1;
+            byte[] copy = builder.toByteArray();
+            for (int i = 1; i < copies; i++) {
+                builder.raw(copy);
+            }
+            return copies == 1 ? copy : builder.toByteArray();
+        } finally {
+            EscPCommandBuilder.release(builder);
+        }
+    }
+
+    private static void appendItem(EscPCommandBuilder builder, ReadableMap item) throws WriterException {
+        String type = item.getString("type");
+        switch (type) {
+            case "text":
+                boolean bold = item.hasKey("bold") && item.getBoolean("bold");
+                boolean underline = item.hasKey("underline") && item.getBoolean("underline");
+                boolean doubleWidth = item.hasKey("doubleWidth") && item.getBoolean("doubleWidth");
+                if (item.hasKey("align")) {
+                    builder.align(parseAlignment(item.getString("align")));
+                }
+                if (bold) builder.bold(true);
+                if (underline) builder.underline(true);
+                if (doubleWidth) builder.doubleWidth(true);
+                builder.text(item.getString("text"));
+                if (!item.hasKey("newline") || item.getBoolean("newline")) {
+                    builder.feed(1);
+                }
+                if (doubleWidth) builder.doubleWidth(false);
+                if (underline) builder.underline(false);
+                if (bold) builder.bold(false);
+                if (item.hasKey("align")) {
+                    builder.align(EscPCommandBuilder.ALIGN_LEFT);
+                }
+                break;
+            case "feed":
+                builder.feed(item.hasKey("lines") ? item.getInt("lines") : 1);
+                break;
+            case "barcode":
+                builder.barcode(
+                    parseBarcodeType(item.hasKey("format") ? item.getString("format") : "code128"),
+                    item.getString("data"),
+                    item.hasKey("height") ? item.getInt("height") : 60
+                );
+                break;
+            case "qr":
+                builder.qrCode(item.getString("data"), item.hasKey("moduleSize") ? item.getInt("moduleSize") : 4);
+                break;
+            case "image":
+                appendImage(builder, Base64.decode(item.getString("base64"), Base64.DEFAULT),
+                    item.hasKey("width") ? item.getInt("width") : MAX_IMAGE_WIDTH);
+                break;
+            case "raw":
+                builder.raw(Base64.decode(item.getString("base64"), Base64.DEFAULT));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown item type: " + type);
+        }
+    }
+
+    private static void appendImage(EscPCommandBuilder builder, byte[] encoded, int maxWidth) {
+        Bitmap source = BitmapFactory.decodeByteArray(encoded, 0, encoded.length);
+        if (source == null) {
+            throw new IllegalArgumentException("Unsupported image data");
+        }
+        int width = Math.min(maxWidth, source.getWidth());
+        int height = Math.max(1, source.getHeight() * width / source.getWidth());
+        Bitmap scaled = width == source.getWidth() ? source : Bitmap.createScaledBitmap(source, width, height, true);
+
+        int[] pixels = new int[width * height];
+        scaled.getPixels(pixels, 0, width, 0, 0, width, height);
+        if (scaled != source) {
+            scaled.recycle();
+        }
+        source.recycle();
+
+        // Luminance in place; transparent pixels count as paper
+        for (int i = 0; i < pixels.length; i++) {
+            int pixel = pixels[i];
+            if (Color.alpha(pixel) < 128) {
+                pixels[i] = 255;
+            } else {
+                pixels[i] = (Color.red(pixel) * 299 + Color.green(pixel) * 587 + Color.blue(pixel) * 114) / 1000;
+            }
+        }
+        builder.ditheredImage(pixels, width, height);
+    }
+
+    private static int parseAlignment(String align) {
+        switch (align) {
+            case "center":
+                return EscPCommandBuilder.ALIGN_CENTER;
+            case "right":
+                return EscPCommandBuilder.ALIGN_RIGHT;
+            default:
+                return EscPCommandBuilder.ALIGN_LEFT;
+        }
+    }
+
+    private static int parseBarcodeType(String format) {
+        switch (format.toLowerCase()) {
+            case "ean13":
+                return EscPCommandBuilder.BARCODE_EAN13;
+            case "ean8":
+                return EscPCommandBuilder.BARCODE_EAN8;
+            case "itf":
+                return EscPCommandBuilder.BARCODE_ITF;
+            case "upca":
+                return EscPCommandBuilder.BARCODE_UPCA;
+            case "upce":
+                return EscPCommandBuilder.BARCODE_UPCE;
+            case "code39":
+                return EscPCommandBuilder.BARCODE_CODE39;
+            case "code128":
+                return EscPCommandBuilder.BARCODE_CODE128;
+            default:
+                throw new IllegalArgumentException("Unsupported barcode format: " + format);
+        }
+    }
+
+    // Routes the job and returns its id, or null after rejecting the promise.
+    // options may pin it to one printer ({printer: address}) or a pool ({printers: [addresses]}).
+    private String submitJob(byte[] data, ReadableMap options, PrintSpooler.JobCallback callback, Promise promise) {
+        if (sessions.isEmpty()) {
+            promise.reject("NOT_CONNECTED", "Printer not connected");
+            return null;
+        }
+
+        PrinterSession session;
+        if (options != null && options.hasKey("printer")) {
+            session = sessions.get(options.getString("printer"));
+            if (session == null) {
+                promise.reject("NOT_CONNECTED", "Printer " + options.getString("printer") + " not connected");
+                return null;
+            }
+        } else if (options != null && options.hasKey("printers")) {
+            List<PrinterSession> pool = new ArrayList<>();
+            ReadableArray addresses = options.getArray("printers");
+            for (int i = 0; i < addresses.size(); i++) {
+                PrinterSession member = sessions.get(addresses.getString(i));
+                if (member != null) {
+                    pool.add(member);
+                }
+            }
+            session = router.choose(pool);
+        } else {
+            session = router.choose(sessions.values());
+        }
+        if (session == null) {
+            promise.reject("NOT_CONNECTED", "No connected printer available");
+            return null;
+        }
+
+        String jobId = "job-" + jobCounter.incrementAndGet();
+        if (!session.submit(new PrintSpooler.Job(jobId, data, callback))) {
+            promise.reject("QUEUE_FULL", "Print queue is full, wait for PrintQueueState to clear");
+            return null;
+        }
+        return jobId;
+    }
+
+    @ReactMethod
+    public void getMetrics(Promise promise) {
+        promise.resolve(collectMetrics());
+    }
+
+    @ReactMethod
+    public void resetMetrics(Promise promise) {
+        for (PrinterSession session : sessions.values()) {
+            session.getMetrics().reset();
+        }
+        buildLatency.reset();
+        promise.resolve(true);
+    }
+
+    // Emits PrinterMetrics events every intervalMs until stopMetricsEvents is called
+    @ReactMethod
+    public void startMetricsEvents(double intervalMs, Promise promise) {
+        long interval = Math.max(1000, (long) intervalMs);
+        synchronized (this) {
+            stopMetricsTimer();
+            metricsTimer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "animusic-printer-metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+            metricsTimer.scheduleWithFixedDelay(() -> sendEvent(METRICS_EVENT, collectMetrics()),
+                interval, interval, TimeUnit.MILLISECONDS);
+        }
+        promise.resolve(true);
+    }
+
+    @ReactMethod
+    public void stopMetricsEvents(Promise promise) {
+        stopMetricsTimer();
+        promise.resolve(true);
+    }
+
+    private synchronized void stopMetricsTimer() {
+        if (metricsTimer != null) {
+            metricsTimer.shutdownNow();
+            metricsTimer = null;
+        }
+    }
+
+    private WritableMap collectMetrics() {
+        WritableMap result = Arguments.createMap();
+        result.putMap("buildLatency", toHistogramMap(buildLatency));
+        WritableArray printers = Arguments.createArray();
+        for (PrinterSession session : sessions.values()) {
+            PrinterMetrics metrics = session.getMetrics();
+            WritableMap map = Arguments.createMap();
+            map.putString("address", session.getAddress());
+            map.putString("connectionState", session.getConnection().getState().name().toLowerCase());
+            map.putDouble("connects", metrics.getConnects());
+            map.putDouble("reconnects", metrics.getReconnects());
+            map.putDouble("bytesWritten", metrics.getBytesWritten());
+            map.putDouble("batches", metrics.getBatches());
+            map.putDouble("jobsCompleted", metrics.getJobsCompleted());
+            map.putDouble("jobsFailed", metrics.getJobsFailed());
+            map.putInt("queueDepth", session.getSpooler().getQueuedJobs());
+            map.putDouble("queuedBytes", session.getSpooler().getQueuedBytes());
+            map.putDouble("maxQueueDepth", metrics.getMaxQueueDepth());
+            map.putDouble("resumes", metrics.getResumes());
+            map.putDouble("stalls", metrics.getStalls());
+            map.putMap("connectLatency", toHistogramMap(metrics.connectLatency));
+            map.putMap("writeLatency", toHistogramMap(metrics.writeLatency));
+            map.putMap("flushLatency", toHistogramMap(metrics.flushLatency));
+            map.putMap("jobLatency", toHistogramMap(metrics.jobLatency));
+
+            WritableMap failures = Arguments.createMap();
+            for (Map.Entry<String, Long> entry : metrics.getFailureReasons().entrySet()) {
+                failures.putDouble(entry.getKey(), entry.getValue());
+            }
+            map.putMap("failureReasons", failures);
+            printers.pushMap(map);
         }
+        result.putArray("printers", printers);
+        return result;
     }
 
+    private static WritableMap toHistogramMap(PrinterMetrics.Histogram histogram) {
+        WritableMap map = Arguments.createMap();
+        map.putDouble("count", histogram.getCount());
+        map.putDouble("meanMs", histogram.getMeanMs());
+        map.putDouble("p50Ms", histogram.getPercentileMs(50));
+        map.putDouble("p95Ms", histogram.getPercentileMs(95));
+        map.putDouble("maxMs", histogram.getMaxMs());
+        return map;
+    }
+
+    // Top-level fields describe the printer the router would use next; "printers" lists every session
     @ReactMethod
     public void getStatus(Promise promise) {
         try {
-            WritableMap status = Arguments.createMap();
-            status.putBoolean("online", connectedDevice != null);
-            status.putString("paperLevel", "normal"); // Would need specific printer commands to check
-            
-            WritableArray errors = Arguments.createArray();
-            if (connectedDevice == null) {
-                errors.pushString("Not connected");
+            PrinterSession primary = router.peek(sessions.values());
+            if (primary == null && !sessions.isEmpty()) {
+                primary = sessions.values().iterator().next();
             }
-            status.putArray("errors", errors);
+
+            WritableMap status = primary != null
+                ? toSessionMap(primary)
+                : toStatusMap(PrinterStatusReader.Status.unknown(), false);
+            if (primary == null) {
+                status.putString("connectionState", PrinterConnection.State.DISCONNECTED.name().toLowerCase());
+                status.putInt("queuedJobs", 0);
+                status.putBoolean("queuePaused", false);
+            }
+
+            WritableArray printers = Arguments.createArray();
+            for (PrinterSession session : sessions.values()) {
+                printers.pushMap(toSessionMap(session));
+            }
+            status.putArray("printers", printers);
+            status.putString("routingPolicy", router.getPolicy() == PrintRouter.Policy.ROUND_ROBIN ? "roundRobin" : "leastLoaded");
             
             promise.resolve(status);
             
@@ -220,4 +791,14 @@ public class HoneywellPrinterModule extends ReactContextBaseJavaModule {
             promise.reject("STATUS_ERROR", "Failed to get status: " + e.getMessage());
         }
     }
+
+    private static WritableMap toSessionMap(PrinterSession session) {
+        PrinterConnection.State state = session.getConnection().getState();
+        WritableMap map = toStatusMap(session.getStatus(), state == PrinterConnection.State.CONNECTED);
+        map.putString("address", session.getAddress());
+        map.putString("connectionState", state.name().toLowerCase());
+        map.putInt("queuedJobs", session.getSpooler().getQueuedJobs());
+        map.putBoolean("queuePaused", session.getSpooler().isPaused());
+        return map;
+    }
 }
\ No newline at end of file
@@ -23,6 +23,7 @@ class MainApplication : Application(), ReactApplication {
               // Custom packages commented out for now
               // add(MusicDeletePackage())
               // add(HoneywellPrinterPackage())
+              // add(MusicPlaybackPackage())
             }
 
         override fun getJSMainModuleName(): String = "index"
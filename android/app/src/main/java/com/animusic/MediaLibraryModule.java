@@ -0,0 +1,546 @@
+package com.animusic;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.provider.MediaStore;
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class MediaLibraryModule extends ReactContextBaseJavaModule {
+    private static final String TAG = "MediaLibrary";
+
+    // Rows are returned flattened, one value per column in this order
+    private static final String[] PROJECTION = new String[]{
+        MediaStore.Audio.Media._ID,
+        MediaStore.Audio.Media.DATA,
+        MediaStore.Audio.Media.TITLE,
+        MediaStore.Audio.Media.ARTIST,
+        MediaStore.Audio.Media.ALBUM,
+        MediaStore.Audio.Media.DURATION,
+        MediaStore.Audio.Media.DATE_MODIFIED,
+        MediaStore.Audio.Media.SIZE
+    };
+    private static final String SELECTION = MediaStore.Audio.Media.IS_MUSIC + " != 0";
+
+    // Incremental sync state: MediaStore version, highest generation seen and the known IDs
+    private static final String SYNC_PREFS = "MediaLibrarySync";
+    private static final String PREF_VERSION = "mediaStoreVersion";
+    private static final String PREF_GENERATION = "generation";
+    private static final String KNOWN_IDS_FILE = "media_library_ids.bin";
+
+    // Paged queries walk the table in _ID order using the last ID as the cursor
+    public static final String CHUNK_EVENT = "MediaLibraryChunk";
+    private static final int DEFAULT_PAGE_SIZE = 200;
+    private static final int MAX_PAGE_SIZE = 2000;
+    private final AtomicInteger nextStreamId = new AtomicInteger(1);
+    // Cancel flags for streams that are still running, removed as soon as a stream ends
+    private final Map<Integer, AtomicBoolean> activeStreams = new ConcurrentHashMap<>();
+
+    // Scans must not block the UI thread or the shared native-modules thread
+    private final NativeIoExecutor.IoQueue ioQueue;
+
+    public MediaLibraryModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+        ioQueue = NativeIoExecutor.getInstance().queue(getName());
+    }
+
+    @Override
+    public String getName() {
+        return "MediaLibrary";
+    }
+
+    @ReactMethod
+    public void scanAudioLibrary(Promise promise) {
+        ioQueue.submit(promise, () -> {
+            long start = System.currentTimeMillis();
+            Cursor cursor = null;
+            try {
+                ContentResolver resolver = getReactApplicationContext().getContentResolver();
+                Uri collection = MediaStore.Audio.Media.EXTERNAL_CONTENT_URI;
+
+                cursor = resolver.query(
+                    collection,
+                    PROJECTION,
+                    SELECTION,
+                    null,
+                    MediaStore.Audio.Media.TITLE + " ASC"
+                );
+
+                if (cursor == null) {
+                    promise.reject("QUERY_FAILED", "MediaStore query returned no cursor");
+                    return;
+                }
+
+                WritableArray rows = Arguments.createArray();
+                int count = packRows(cursor, rows);
+
+                WritableMap result = Arguments.createMap();
+                result.putArray("columns", createColumns());
+                result.putArray("rows", rows);
+                result.putInt("count", count);
+                promise.resolve(result);
+
+                Log.d(TAG, "Scanned " + count + " tracks in " + (System.currentTimeMillis() - start) + "ms");
+            } catch (SecurityException e) {
+                Log.e(TAG, "No permission to read audio library", e);
+                promise.reject("PERMISSION_DENIED", "Cannot read audio library: " + e.getMessage());
+            } catch (Exception e) {
+                Log.e(TAG, "Error scanning audio library", e);
+                promise.reject("SCAN_FAILED", e.getMessage());
+            } finally {
+                if (cursor != null) {
+                    cursor.close();
+                }
+            }
+        });
+    }
+
+    @ReactMethod
+    public void syncAudioLibrary(Promise promise) {
+        ioQueue.submit(promise, () -> {
+            long start = System.currentTimeMillis();
+            try {
+                // Generation columns only exist on Android 11+, older devices always get a full scan
+                if (Build.VERSION.SDK_INT < Build.VERSION_CODES.R) {
+                    promise.resolve(fullSync(null));
+                    return;
+                }
+
+                Context context = getReactApplicationContext();
+                SharedPreferences prefs = context.getSharedPreferences(SYNC_PREFS, Context.MODE_PRIVATE);
+                String version = MediaStore.getVersion(context);
+                long lastGeneration = prefs.getLong(PREF_GENERATION, -1);
+                Set<Long> knownIds = loadKnownIds();
+
+                WritableMap result;
+                if (!version.equals(prefs.getString(PREF_VERSION, null)) || lastGeneration < 0 || knownIds == null) {
+                    // MediaStore was rebuilt (or first run), generations are no longer comparable
+                    Log.d(TAG, "MediaStore version changed, running full sync");
+                    result = fullSync(prefs);
+                } else {
+                    result = deltaSync(prefs, lastGeneration, knownIds);
+                }
+                prefs.edit().putString(PREF_VERSION, version).apply();
+                promise.resolve(result);
+
+                Log.d(TAG, "Library sync finished in " + (System.currentTimeMillis() - start) + "ms");
+            } catch (SecurityException e) {
+                Log.e(TAG, "No permission to read audio library", e);
+                promise.reject("PERMISSION_DENIED", "Cannot read audio library: " + e.getMessage());
+            } catch (Exception e) {
+                Log.e(TAG, "Error syncing audio library", e);
+                promise.reject("SYNC_FAILED", e.getMessage());
+            }
+        });
+    }
+
+    @ReactMethod
+    public void resetLibrarySync(Promise promise) {
+        ioQueue.submit(promise, () -> {
+            Context context = getReactApplicationContext();
+            context.getSharedPreferences(SYNC_PREFS, Context.MODE_PRIVATE).edit().clear().apply();
+            new File(context.getFilesDir(), KNOWN_IDS_FILE).delete();
+            promise.resolve(true);
+        });
+    }
+
+    @ReactMethod
+    public void getAudioLibraryPage(double afterId, int limit, Promise promise) {
+        ioQueue.submit(promise, () -> {
+            try {
+                int pageSize = clampPageSize(limit);
+                WritableArray rows = Arguments.createArray();
+                long lastId = queryPage((long) afterId, pageSize, rows);
+                promise.resolve(createPage(rows, lastId < 0 ? (long) afterId : lastId, pageSize));
+            } catch (SecurityException e) {
+                Log.e(TAG, "No permission to read audio library", e);
+                promise.reject("PERMISSION_DENIED", "Cannot read audio library: " + e.getMessage());
+            } catch (Exception e) {
+                Log.e(TAG, "Error reading audio library page", e);
+                promise.reject("SCAN_FAILED", e.getMessage());
+            }
+        });
+    }
+
+    @ReactMethod
+    public void streamAudioLibrary(int pageSize, Promise promise) {
+        int streamId = nextStreamId.getAndIncrement();
+        int limit = clampPageSize(pageSize);
+
+        ioQueue.submit(promise, () -> {
+            // Registered only once the stream runs, JS cannot know the id any earlier
+            AtomicBoolean cancelled = new AtomicBoolean(false);
+            activeStreams.put(streamId, cancelled);
+            promise.resolve(streamId);
+            long start = System.currentTimeMillis();
+            long lastId = -1;
+            int total = 0;
+            try {
+                while (!cancelled.get() && !NativeIoExecutor.isCancelled()) {
+                    WritableArray rows = Arguments.createArray();
+                    long pageLastId = queryPage(lastId, limit, rows);
+                    int pageCount = rows.size() / PROJECTION.length;
+                    total += pageCount;
+
+                    boolean done = pageCount < limit;
+                    WritableMap chunk = createPage(rows, pageLastId < 0 ? lastId : pageLastId, limit);
+                    chunk.putInt("streamId", streamId);
+                    sendEvent(CHUNK_EVENT, chunk);
+
+                    if (done) {
+                        Log.d(TAG, "Streamed " + total + " tracks in " + (System.currentTimeMillis() - start) + "ms");
+                        return;
+                    }
+                    lastId = pageLastId;
+                }
+                Log.d(TAG, "Stream " + streamId + " cancelled after " + total + " tracks");
+            } catch (Exception e) {
+                Log.e(TAG, "Error streaming audio library", e);
+                WritableMap error = Arguments.createMap();
+                error.putInt("streamId", streamId);
+                error.putBoolean("done", true);
+                error.putString("error", e.getMessage());
+                sendEvent(CHUNK_EVENT, error);
+            } finally {
+                activeStreams.remove(streamId);
+            }
+        });
+    }
+
+    @ReactMethod
+    public void cancelAudioLibraryStream(int streamId) {
+        // Finished or unknown streams have no flag, so nothing is left behind for them
+        AtomicBoolean cancelled = activeStreams.get(streamId);
+        if (cancelled != null) {
+            cancelled.set(true);
+        }
+    }
+
+    // Required by NativeEventEmitter
+    @ReactMethod
+    public void addListener(String eventName) {
+    }
+
+    @ReactMethod
+    public void removeListeners(int count) {
+    }
+
+    // Fills rows with up to limit tracks whose _ID is greater than afterId, returns the last _ID or -1
+    private long queryPage(long afterId, int limit, WritableArray rows) throws IOException {
+        ContentResolver resolver = getReactApplicationContext().getContentResolver();
+        String selection = SELECTION + " AND " + MediaStore.Audio.Media._ID + " > ?";
+        String[] selectionArgs = new String[]{String.valueOf(afterId)};
+        String sortOrder = MediaStore.Audio.Media._ID + " ASC";
+
+        Cursor cursor;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            // Android 11+ rejects LIMIT inside the sort order, use query arguments instead. Older
+            // providers ignore QUERY_ARG_LIMIT and would return the whole table after afterId
+            Bundle queryArgs = new Bundle();
+            queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, selection);
+            queryArgs.putStringArray(ContentResolver.QUERY_ARG_SQL_SELECTION_ARGS, selectionArgs);
+            queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SORT_ORDER, sortOrder);
+            queryArgs.putInt(ContentResolver.QUERY_ARG_LIMIT, limit);
+            cursor = resolver.query(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, PROJECTION, queryArgs, null);
+        } else {
+            cursor = resolver.query(
+                MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
+                PROJECTION,
+                selection,
+                selectionArgs,
+                sortOrder + " LIMIT " + limit
+            );
+        }
+        if (cursor == null) {
+            throw new IOException("MediaStore query returned no cursor");
+        }
+
+        try {
+            if (packRows(cursor, rows) == 0) {
+                return -1;
+            }
+            cursor.moveToLast();
+            return cursor.getLong(cursor.getColumnIndexOrThrow(MediaStore.Audio.Media._ID));
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private WritableMap createPage(WritableArray rows, long lastId, int limit) {
+        int count = rows.size() / PROJECTION.length;
+        WritableMap page = Arguments.createMap();
+        page.putArray("columns", createColumns());
+        page.putArray("rows", rows);
+        page.putInt("count", count);
+        page.putDouble("lastId", lastId);
+        page.putBoolean("done", count < limit);
+        return page;
+    }
+
+    private int clampPageSize(int pageSize) {
+        if (pageSize <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(pageSize, MAX_PAGE_SIZE);
+    }
+
+    private void sendEvent(String eventName, WritableMap params) {
+        ReactApplicationContext context = getReactApplicationContext();
+        if (context.hasActiveReactInstance()) {
+            context.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class).emit(eventName, params);
+        }
+    }
+
+    private WritableMap fullSync(SharedPreferences prefs) throws IOException {
+        ContentResolver resolver = getReactApplicationContext().getContentResolver();
+        boolean trackGeneration = prefs != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.R;
+
+        Cursor cursor = resolver.query(
+            MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
+            trackGeneration ? withGenerationColumns(PROJECTION) : PROJECTION,
+            SELECTION,
+            null,
+            null
+        );
+        if (cursor == null) {
+            throw new IOException("MediaStore query returned no cursor");
+        }
+
+        WritableArray rows = Arguments.createArray();
+        Set<Long> ids = new HashSet<>();
+        long maxGeneration = 0;
+        try {
+            packRows(cursor, rows);
+            int idColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media._ID);
+            int generationColumn = trackGeneration
+                ? cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.GENERATION_MODIFIED) : -1;
+            for (cursor.moveToPosition(-1); cursor.moveToNext(); ) {
+                ids.add(cursor.getLong(idColumn));
+                if (generationColumn >= 0) {
+                    maxGeneration = Math.max(maxGeneration, cursor.getLong(generationColumn));
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+
+        if (trackGeneration) {
+            saveKnownIds(ids);
+            prefs.edit().putLong(PREF_GENERATION, maxGeneration).apply();
+        }
+
+        WritableMap result = Arguments.createMap();
+        result.putBoolean("fullSync", true);
+        result.putArray("columns", createColumns());
+        result.putArray("added", rows);
+        result.putArray("changed", Arguments.createArray());
+        result.putArray("removed", Arguments.createArray());
+        result.putInt("count", ids.size());
+        return result;
+    }
+
+    private WritableMap deltaSync(SharedPreferences prefs, long lastGeneration, Set<Long> knownIds) throws IOException {
+        ContentResolver resolver = getReactApplicationContext().getContentResolver();
+
+        // Only rows touched since the last sync
+        Cursor cursor = resolver.query(
+            MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
+            withGenerationColumns(PROJECTION),
+            SELECTION + " AND " + MediaStore.Audio.Media.GENERATION_MODIFIED + " > ?",
+            new String[]{String.valueOf(lastGeneration)},
+            null
+        );
+        if (cursor == null) {
+            throw new IOException("MediaStore query returned no cursor");
+        }
+
+        WritableArray added = Arguments.createArray();
+        WritableArray changed = Arguments.createArray();
+        long maxGeneration = lastGeneration;
+        int addedCount = 0;
+        try {
+            int idColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media._ID);
+            int generationColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.GENERATION_MODIFIED);
+            while (cursor.moveToNext()) {
+                long id = cursor.getLong(idColumn);
+                maxGeneration = Math.max(maxGeneration, cursor.getLong(generationColumn));
+                if (knownIds.add(id)) {
+                    packRow(cursor, added);
+                    addedCount++;
+                } else {
+                    packRow(cursor, changed);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+
+        // Deletions leave no generation behind, so compare the ID set; the count alone
+        // tells us whether anything disappeared
+        WritableArray removed = Arguments.createArray();
+        Cursor idCursor = resolver.query(
+            MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
+            new String[]{MediaStore.Audio.Media._ID},
+            SELECTION,
+            null,
+            null
+        );
+        if (idCursor == null) {
+            throw new IOException("MediaStore query returned no cursor");
+        }
+        try {
+            if (idCursor.getCount() != knownIds.size()) {
+                Set<Long> currentIds = new HashSet<>();
+                while (idCursor.moveToNext()) {
+                    currentIds.add(idCursor.getLong(0));
+                }
+                for (Long id : knownIds) {
+                    if (!currentIds.contains(id)) {
+                        removed.pushDouble(id);
+                    }
+                }
+                knownIds.retainAll(currentIds);
+            }
+        } finally {
+            idCursor.close();
+        }
+
+        if (addedCount > 0 || removed.size() > 0) {
+            saveKnownIds(knownIds);
+        }
+        prefs.edit().putLong(PREF_GENERATION, maxGeneration).apply();
+
+        Log.d(TAG, "Delta sync: " + addedCount + " added, " + changed.size() + " changed, " + removed.size() + " removed");
+
+        WritableMap result = Arguments.createMap();
+        result.putBoolean("fullSync", false);
+        result.putArray("columns", createColumns());
+        result.putArray("added", added);
+        result.putArray("changed", changed);
+        result.putArray("removed", removed);
+        result.putInt("count", knownIds.size());
+        return result;
+    }
+
+    private String[] withGenerationColumns(String[] projection) {
+        String[] extended = new String[projection.length + 2];
+        System.arraycopy(projection, 0, extended, 0, projection.length);
+        extended[projection.length] = MediaStore.Audio.Media.GENERATION_ADDED;
+        extended[projection.length + 1] = MediaStore.Audio.Media.GENERATION_MODIFIED;
+        return extended;
+    }
+
+    private Set<Long> loadKnownIds() {
+        File file = new File(getReactApplicationContext().getFilesDir(), KNOWN_IDS_FILE);
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int count = in.readInt();
+            Set<Long> ids = new HashSet<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                ids.add(in.readLong());
+            }
+            return ids;
+        } catch (IOException e) {
+            Log.e(TAG, "Could not read known IDs, forcing full sync", e);
+            return null;
+        }
+    }
+
+    private void saveKnownIds(Set<Long> ids) throws IOException {
+        File file = new File(getReactApplicationContext().getFilesDir(), KNOWN_IDS_FILE);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(ids.size());
+            for (Long id : ids) {
+                out.writeLong(id);
+            }
+        }
+    }
+
+    private int packRows(Cursor cursor, WritableArray rows) {
+        int idColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media._ID);
+        int dataColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DATA);
+        int titleColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.TITLE);
+        int artistColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ARTIST);
+        int albumColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ALBUM);
+        int durationColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DURATION);
+        int dateModifiedColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DATE_MODIFIED);
+        int sizeColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.SIZE);
+
+        int count = 0;
+        while (cursor.moveToNext()) {
+            rows.pushDouble(cursor.getLong(idColumn));
+            pushString(rows, cursor, dataColumn);
+            pushString(rows, cursor, titleColumn);
+            pushString(rows, cursor, artistColumn);
+            pushString(rows, cursor, albumColumn);
+            rows.pushDouble(cursor.getLong(durationColumn));
+            rows.pushDouble(cursor.getLong(dateModifiedColumn));
+            rows.pushDouble(cursor.getLong(sizeColumn));
+            count++;
+        }
+        return count;
+    }
+
+    // Packs the cursor's current row, for the small delta result sets
+    private void packRow(Cursor cursor, WritableArray rows) {
+        rows.pushDouble(cursor.getLong(cursor.getColumnIndexOrThrow(MediaStore.Audio.Media._ID)));
+        pushString(rows, cursor, cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DATA));
+        pushString(rows, cursor, cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.TITLE));
+        pushString(rows, cursor, cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ARTIST));
+        pushString(rows, cursor, cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ALBUM));
+        rows.pushDouble(cursor.getLong(cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DURATION)));
+        rows.pushDouble(cursor.getLong(cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DATE_MODIFIED)));
+        rows.pushDouble(cursor.getLong(cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.SIZE)));
+    }
+
+    private void pushString(WritableArray rows, Cursor cursor, int column) {
+        if (cursor.isNull(column)) {
+            rows.pushNull();
+        } else {
+            rows.pushString(cursor.getString(column));
+        }
+    }
+
+    private WritableArray createColumns() {
+        WritableArray columns = Arguments.createArray();
+        for (String column : PROJECTION) {
+            columns.pushString(column);
+        }
+        return columns;
+    }
+
+    @ReactMethod
+    public void cancelPendingOperations(Promise promise) {
+        promise.resolve(ioQueue.cancelAll());
+    }
+}
@@ -0,0 +1,207 @@
+package com.animusic;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.MediaStore;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Shared path -> MediaStore _ID lookup for the delete and storage modules.
+// Entries are dropped whenever MediaStore reports a change to the audio table.
+public class MediaStoreIdCache {
+    private static final String TAG = "MediaStoreIdCache";
+    private static final int MAX_ENTRIES = 1024;
+    // SQLite caps bound arguments at 999 on older devices
+    private static final int MAX_QUERY_ARGS = 500;
+
+    private static MediaStoreIdCache instance;
+
+    private final ContentResolver resolver;
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<String, Long>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    // Bumped on every removal, so a query that raced an invalidation doesn't re-cache its result
+    private long generation;
+
+    private final ContentObserver observer = new ContentObserver(null) {
+        @Override
+        public void onChange(boolean selfChange, Uri uri) {
+            invalidate(uri);
+        }
+    };
+
+    public static synchronized MediaStoreIdCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new MediaStoreIdCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private MediaStoreIdCache(Context context) {
+        resolver = context.getContentResolver();
+        resolver.registerContentObserver(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, true, observer);
+    }
+
+    public static String normalizePath(String filePath) {
+        String path = filePath.trim();
+        if (path.startsWith("file://")) {
+            path = path.substring("file://".length());
+        }
+        return path;
+    }
+
+    // Returns the MediaStore _ID for the file, or -1 if MediaStore doesn't know it
+    public long getId(String filePath) {
+        String path = normalizePath(filePath);
+        long queriedAt;
+        synchronized (this) {
+            Long cached = entries.get(path);
+            if (cached != null) {
+                return cached;
+            }
+            queriedAt = generation;
+        }
+
+        Cursor cursor = resolver.query(
+            MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
+            new String[]{MediaStore.Audio.Media._ID},
+            MediaStore.Audio.Media.DATA + "=?",
+            new String[]{path},
+            null
+        );
+        if (cursor == null) {
+            return -1;
+        }
+
+        try {
+            if (!cursor.moveToFirst()) {
+                return -1;
+            }
+            long id = cursor.getLong(0);
+            synchronized (this) {
+                if (generation == queriedAt) {
+                    entries.put(path, id);
+                }
+            }
+            return id;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    public Uri getUri(String filePath) {
+        long id = getId(filePath);
+        return id < 0 ? null : ContentUris.withAppendedId(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, id);
+    }
+
+    // Resolves many paths at once; misses are looked up with DATA IN (...) queries
+    public Map<String, Long> getIds(Collection<String> filePaths) {
+        Map<String, Long> ids = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        long queriedAt;
+
+        synchronized (this) {
+            queriedAt = generation;
+            for (String filePath : filePaths) {
+                String path = normalizePath(filePath);
+                Long cached = entries.get(path);
+                if (cached != null) {
+                    ids.put(path, cached);
+                } else {
+                    missing.add(path);
+                }
+            }
+        }
+
+        for (int start = 0; start < missing.size(); start += MAX_QUERY_ARGS) {
+            List<String> chunk = missing.subList(start, Math.min(start + MAX_QUERY_ARGS, missing.size()));
+
+            StringBuilder selection = new StringBuilder(MediaStore.Audio.Media.DATA).append(" IN (");
+            for (int i = 0; i < chunk.size(); i++) {
+                selection.append(i == 0 ? "?" : ",?");
+            }
+            selection.append(")");
+
+            Cursor cursor = resolver.query(
+                MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
+                new String[]{MediaStore.Audio.Media._ID, MediaStore.Audio.Media.DATA},
+                selection.toString(),
+                chunk.toArray(new String[0]),
+                null
+            );
+            if (cursor == null) {
+                continue;
+            }
+
+            try {
+                int idColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media._ID);
+                int dataColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DATA);
+                synchronized (this) {
+                    boolean current = generation == queriedAt;
+                    while (cursor.moveToNext()) {
+                        String path = cursor.getString(dataColumn);
+                        long id = cursor.getLong(idColumn);
+                        ids.put(path, id);
+                        if (current) {
+                            entries.put(path, id);
+                        }
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+
+        return ids;
+    }
+
+    public synchronized void remove(String filePath) {
+        generation++;
+        entries.remove(normalizePath(filePath));
+    }
+
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+    }
+
+    private synchronized void invalidate(Uri uri) {
+        generation++;
+        long id = -1;
+        if (uri != null) {
+            try {
+                id = ContentUris.parseId(uri);
+            } catch (NumberFormatException | UnsupportedOperationException e) {
+                id = -1;
+            }
+        }
+
+        if (id < 0) {
+            // Collection-level change, we can't tell which rows moved
+            entries.clear();
+            return;
+        }
+
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getValue() == id) {
+                iterator.remove();
+            }
+        }
+        Log.d(TAG, "Invalidated MediaStore ID " + id);
+    }
+}
@@ -0,0 +1,130 @@
+package com.animusic;
+
+import android.app.Activity;
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class MediaTrashModule extends ReactContextBaseJavaModule {
+    private static final String TAG = "MediaTrash";
+    private final NativeIoExecutor.IoQueue ioQueue;
+    private final TrashManager trashManager;
+    private final ConsentRequestRegistry consentRequests;
+
+    public MediaTrashModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+        ioQueue = NativeIoExecutor.getInstance().queue(getName());
+        trashManager = TrashManager.getInstance(reactContext);
+        consentRequests = ConsentRequestRegistry.getInstance(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return "MediaTrash";
+    }
+
+    @ReactMethod
+    public void cancelPendingOperations(Promise promise) {
+        promise.resolve(ioQueue.cancelAll());
+    }
+
+    @ReactMethod
+    public void moveToTrash(ReadableArray filePaths, Promise promise) {
+        ioQueue.submit(promise, () -> settle(trashManager.trash(toList(filePaths)), promise));
+    }
+
+    @ReactMethod
+    public void restoreFromTrash(ReadableArray filePaths, Promise promise) {
+        ioQueue.submit(promise, () -> settle(trashManager.restore(toList(filePaths)), promise));
+    }
+
+    @ReactMethod
+    public void getTrashedFiles(Promise promise) {
+        ioQueue.submit(promise, () -> {
+            WritableArray items = Arguments.createArray();
+            for (TrashManager.TrashedItem item : trashManager.list()) {
+                WritableMap map = Arguments.createMap();
+                map.putString("path", item.originalPath);
+                map.putDouble("trashedAt", item.trashedAt);
+                items.pushMap(map);
+            }
+            promise.resolve(items);
+        });
+    }
+
+    // Purges expired items right away instead of waiting for the idle job
+    @ReactMethod
+    public void purgeTrash(Promise promise) {
+        ioQueue.submit(promise, () -> {
+            int total = 0;
+            int purged;
+            do {
+                purged = trashManager.purge(TrashManager.RETENTION_MS, TrashManager.PURGE_BATCH_SIZE);
+                total += purged;
+            } while (purged == TrashManager.PURGE_BATCH_SIZE && !NativeIoExecutor.isCancelled());
+            promise.resolve(total);
+        });
+    }
+
+    private void settle(TrashManager.BatchOutcome batch, Promise promise) {
+        if (batch.consent == null) {
+            promise.resolve(toResults(batch));
+            return;
+        }
+
+        Activity activity = getCurrentActivity();
+        if (activity == null) {
+            Log.e(TAG, "No current activity");
+            promise.reject("NO_ACTIVITY", "No current activity");
+            return;
+        }
+
+        Log.d(TAG, "Launching trash dialog for " + batch.consentPaths.size() + " files");
+        consentRequests.launch(activity, batch.consent, new ConsentRequestRegistry.Callback() {
+            @Override
+            public void onResult(boolean approved) {
+                Log.d(TAG, "Trash dialog approved: " + approved);
+                trashManager.complete(batch, approved);
+                promise.resolve(toResults(batch));
+            }
+
+            @Override
+            public void onCancelled(String code, String message) {
+                promise.reject(code, message);
+            }
+        });
+    }
+
+    private static List<String> toList(ReadableArray filePaths) {
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < filePaths.size(); i++) {
+            String path = filePaths.getString(i);
+            if (path != null) {
+                paths.add(path);
+            }
+        }
+        return paths;
+    }
+
+    private static WritableArray toResults(TrashManager.BatchOutcome batch) {
+        WritableArray results = Arguments.createArray();
+        for (Map.Entry<String, String> entry : batch.statuses.entrySet()) {
+            WritableMap result = Arguments.createMap();
+            result.putString("path", entry.getKey());
+            result.putString("status", entry.getValue());
+            results.pushMap(result);
+        }
+        return results;
+    }
+}
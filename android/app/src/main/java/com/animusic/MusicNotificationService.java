@@ -5,54 +5,275 @@ import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.app.Service;
+import android.content.Context;
 import android.content.Intent;
+import android.content.pm.ServiceInfo;
 import android.os.Build;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
 import androidx.core.app.NotificationCompat;
-import android.widget.RemoteViews;
+import androidx.core.content.ContextCompat;
+import android.support.v4.media.MediaMetadataCompat;
+import android.support.v4.media.session.MediaSessionCompat;
+import android.support.v4.media.session.PlaybackStateCompat;
+import androidx.media.app.NotificationCompat.MediaStyle;
 
-public class MusicNotificationService extends Service {
+import java.util.HashMap;
+import java.util.Map;
+
+// Hosts the native PlaybackEngine in the foreground and mirrors its state in a MediaSession and
+// a MediaStyle notification. Notification, lock-screen and headset controls act on the engine
+// directly, without going through JS.
+public class MusicNotificationService extends Service implements PlaybackEngine.Listener {
+    private static final String TAG = "MusicNotificationService";
     private static final String CHANNEL_ID = "MusicPlayerChannel";
     private static final int NOTIFICATION_ID = 1;
+    // One frame; state bursts within it collapse into a single post
+    private static final long UPDATE_INTERVAL_MS = 16;
+
+    private static volatile boolean running;
+    // Whether this instance is registered with the engine; stopPlaybackService detaches it
+    private boolean listening;
+
+    private PlaybackEngine engine;
+    // Foreground only while playing; a paused notification is detached so it can be swiped away
+    private boolean foreground;
+    private boolean posted;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable updateRunnable = this::showNotification;
+    private final Map<String, PendingIntent> actionIntents = new HashMap<>();
+    private NotificationManager notificationManager;
+    private NotificationCompat.Builder builder;
+    private NotificationCompat.Action previousAction;
+    private NotificationCompat.Action playAction;
+    private NotificationCompat.Action pauseAction;
+    private NotificationCompat.Action nextAction;
+    private MediaSessionCompat mediaSession;
+    private final PlaybackStateCompat.Builder stateBuilder = new PlaybackStateCompat.Builder()
+        .setActions(PlaybackStateCompat.ACTION_PLAY | PlaybackStateCompat.ACTION_PAUSE
+            | PlaybackStateCompat.ACTION_PLAY_PAUSE | PlaybackStateCompat.ACTION_STOP
+            | PlaybackStateCompat.ACTION_SKIP_TO_NEXT | PlaybackStateCompat.ACTION_SKIP_TO_PREVIOUS
+            | PlaybackStateCompat.ACTION_SEEK_TO);
+    // Metadata is only pushed when the track or its known duration changes
+    private String sessionTrackId;
+    private long sessionDurationMs = -1;
+    // What the posted notification currently shows
+    private String postedTitle;
+    private String postedArtist;
+    private boolean postedPlaying;
+    private boolean updateScheduled;
+    private long lastPostAt;
+
+    // Called by the engine when playback starts; a running service is left alone
+    static void ensureStarted(Context context) {
+        if (running) {
+            return;
+        }
+        try {
+            ContextCompat.startForegroundService(context, new Intent(context, MusicNotificationService.class));
+        } catch (IllegalStateException e) {
+            // Android 12+ refuses foreground starts from the background
+            Log.e(TAG, "Could not start playback service", e);
+        }
+    }
 
     @Override
     public void onCreate() {
         super.onCreate();
+        notificationManager = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
         createNotificationChannel();
+        engine = PlaybackEngine.getInstance(this);
+        createMediaSession();
+        attachToEngine();
+    }
+
+    private void attachToEngine() {
+        if (!listening) {
+            engine.addListener(this);
+            listening = true;
+        }
+        running = true;
+        // Catch the session up on whatever happened while detached
+        updateMediaSession();
+    }
+
+    private void createMediaSession() {
+        mediaSession = new MediaSessionCompat(this, TAG);
+        // Callbacks arrive on the main looper, where the engine runs them immediately
+        mediaSession.setCallback(new MediaSessionCompat.Callback() {
+            @Override
+            public void onPlay() {
+                engine.play();
+            }
+
+            @Override
+            public void onPause() {
+                engine.pause();
+            }
+
+            @Override
+            public void onSkipToNext() {
+                engine.skipToNext();
+            }
+
+            @Override
+            public void onSkipToPrevious() {
+                engine.skipToPrevious();
+            }
+
+            @Override
+            public void onSeekTo(long positionMs) {
+                engine.seekTo(positionMs);
+            }
+
+            @Override
+            public void onStop() {
+                engine.stop();
+            }
+        }, handler);
+        Intent activityIntent = new Intent(this, MainActivity.class);
+        mediaSession.setSessionActivity(PendingIntent.getActivity(
+            this, 0, activityIntent, PendingIntent.FLAG_IMMUTABLE
+        ));
+        mediaSession.setActive(true);
+    }
+
+    private void updateMediaSession() {
+        PlaybackEngine.Track track = engine.getCurrentTrack();
+        long durationMs = engine.getDurationMs();
+        String trackId = track != null ? track.id : null;
+        if (track != null && (!trackId.equals(sessionTrackId) || durationMs != sessionDurationMs)) {
+            mediaSession.setMetadata(new MediaMetadataCompat.Builder()
+                .putString(MediaMetadataCompat.METADATA_KEY_MEDIA_ID, track.id)
+                .putString(MediaMetadataCompat.METADATA_KEY_TITLE, track.title)
+                .putString(MediaMetadataCompat.METADATA_KEY_ARTIST, track.artist)
+                .putString(MediaMetadataCompat.METADATA_KEY_ALBUM, track.album)
+                .putLong(MediaMetadataCompat.METADATA_KEY_DURATION, durationMs)
+                .build());
+            sessionTrackId = trackId;
+            sessionDurationMs = durationMs;
+        }
+
+        int state;
+        switch (engine.getState()) {
+            case PLAYING:
+                state = PlaybackStateCompat.STATE_PLAYING;
+                break;
+            case PAUSED:
+                state = PlaybackStateCompat.STATE_PAUSED;
+                break;
+            case BUFFERING:
+                state = PlaybackStateCompat.STATE_BUFFERING;
+                break;
+            case ERROR:
+                state = PlaybackStateCompat.STATE_ERROR;
+                break;
+            case STOPPED:
+                state = PlaybackStateCompat.STATE_STOPPED;
+                break;
+            default:
+                state = PlaybackStateCompat.STATE_NONE;
+                break;
+        }
+        // Controllers extrapolate the position from this, so no periodic updates are needed
+        stateBuilder.setState(state, engine.getPositionMs(), state == PlaybackStateCompat.STATE_PLAYING ? 1f : 0f);
+        stateBuilder.setActiveQueueItemId(engine.getIndex());
+        if (state == PlaybackStateCompat.STATE_ERROR && engine.getErrorMessage() != null) {
+            stateBuilder.setErrorMessage(PlaybackStateCompat.ERROR_CODE_UNKNOWN_ERROR, engine.getErrorMessage());
+        } else {
+            stateBuilder.setErrorMessage(PlaybackStateCompat.ERROR_CODE_UNKNOWN_ERROR, null);
+        }
+        mediaSession.setPlaybackState(stateBuilder.build());
     }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
-        String action = intent.getAction();
-        
+        String action = intent != null ? intent.getAction() : null;
+        // A start can reach this instance after stopPlaybackService but before onDestroy
+        if (!listening) {
+            attachToEngine();
+        }
+
         if (action != null) {
             switch (action) {
                 case "PLAY":
-                    // Handle play action
+                    engine.play();
                     break;
                 case "PAUSE":
-                    // Handle pause action
+                    engine.pause();
                     break;
                 case "NEXT":
-                    // Handle next action
+                    engine.skipToNext();
                     break;
                 case "PREVIOUS":
-                    // Handle previous action
+                    engine.skipToPrevious();
                     break;
                 case "STOP":
-                    stopForeground(true);
-                    stopSelf();
+                    engine.stop();
                     break;
             }
         }
 
-        showNotification(
-            intent.getStringExtra("title"),
-            intent.getStringExtra("artist"),
-            intent.getBooleanExtra("isPlaying", false)
-        );
+        // startForegroundService() requires startForeground() even when we stop right away
+        if (posted) {
+            scheduleUpdate();
+        } else {
+            showNotification();
+        }
+        if (!isActive(engine.getState())) {
+            stopPlaybackService();
+        }
+
+        // The queue lives in memory, so there is nothing to resume after the process dies
+        return START_NOT_STICKY;
+    }
 
-        return START_STICKY;
+    @Override
+    public void onPlaybackStateChanged(PlaybackEngine engine) {
+        updateMediaSession();
+        if (isActive(engine.getState())) {
+            scheduleUpdate();
+        } else {
+            stopPlaybackService();
+        }
+    }
+
+    private static boolean isActive(PlaybackEngine.State state) {
+        return state == PlaybackEngine.State.PLAYING || state == PlaybackEngine.State.BUFFERING
+            || state == PlaybackEngine.State.PAUSED;
+    }
+
+    @Override
+    public void onDestroy() {
+        handler.removeCallbacks(updateRunnable);
+        running = false;
+        engine.removeListener(this);
+        listening = false;
+        mediaSession.setActive(false);
+        mediaSession.release();
+        super.onDestroy();
+    }
+
+    private void stopPlaybackService() {
+        handler.removeCallbacks(updateRunnable);
+        updateScheduled = false;
+        if (foreground) {
+            stopForeground(true);
+            foreground = false;
+        } else if (posted) {
+            // Detached while paused
+            notificationManager.cancel(NOTIFICATION_ID);
+        }
+        posted = false;
+        // Let the next play() start the service again even before onDestroy runs
+        running = false;
+        engine.removeListener(this);
+        listening = false;
+        stopSelf();
     }
 
     private void createNotificationChannel() {
@@ -66,61 +287,110 @@ public class MusicNotificationService extends Service {
             channel.setShowBadge(false);
             channel.setLockscreenVisibility(Notification.VISIBILITY_PUBLIC);
             
-            NotificationManager manager = getSystemService(NotificationManager.class);
-            manager.createNotificationChannel(channel);
-        }
-    }
-
-    private void showNotification(String title, String artist, boolean isPlaying) {
-        Intent notificationIntent = new Intent(this, MainActivity.class);
-        PendingIntent pendingIntent = PendingIntent.getActivity(
-            this, 0, notificationIntent, PendingIntent.FLAG_IMMUTABLE
-        );
-
-        RemoteViews notificationLayout = new RemoteViews(getPackageName(), R.layout.notification_music);
-        notificationLayout.setTextViewText(R.id.notification_title, title != null ? title : "Unknown Song");
-        notificationLayout.setTextViewText(R.id.notification_artist, artist != null ? artist : "Unknown Artist");
-        
-        // Set play/pause button
-        notificationLayout.setImageViewResource(
-            R.id.notification_play_pause,
-            isPlaying ? android.R.drawable.ic_media_pause : android.R.drawable.ic_media_play
-        );
-
-        // Set click listeners
-        Intent playIntent = new Intent(this, MusicNotificationService.class);
-        playIntent.setAction(isPlaying ? "PAUSE" : "PLAY");
-        PendingIntent playPendingIntent = PendingIntent.getService(
-            this, 0, playIntent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
-        notificationLayout.setOnClickPendingIntent(R.id.notification_play_pause, playPendingIntent);
-
-        Intent previousIntent = new Intent(this, MusicNotificationService.class);
-        previousIntent.setAction("PREVIOUS");
-        PendingIntent previousPendingIntent = PendingIntent.getService(
-            this, 1, previousIntent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
-        notificationLayout.setOnClickPendingIntent(R.id.notification_previous, previousPendingIntent);
-
-        Intent nextIntent = new Intent(this, MusicNotificationService.class);
-        nextIntent.setAction("NEXT");
-        PendingIntent nextPendingIntent = PendingIntent.getService(
-            this, 2, nextIntent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
-        notificationLayout.setOnClickPendingIntent(R.id.notification_next, nextPendingIntent);
-
-        Notification notification = new NotificationCompat.Builder(this, CHANNEL_ID)
+            notificationManager.createNotificationChannel(channel);
+        }
+    }
+
+    // Coalesces bursts of state changes (skip, seek, focus) into one post per frame
+    private void scheduleUpdate() {
+        if (updateScheduled) {
+            return;
+        }
+        updateScheduled = true;
+        long wait = Math.max(0, lastPostAt + UPDATE_INTERVAL_MS - SystemClock.uptimeMillis());
+        handler.postDelayed(updateRunnable, wait);
+    }
+
+    private void showNotification() {
+        handler.removeCallbacks(updateRunnable);
+        updateScheduled = false;
+
+        PlaybackEngine.Track track = engine.getCurrentTrack();
+        String title = track != null && track.title != null ? track.title : "Unknown Song";
+        String artist = track != null && track.artist != null ? track.artist : "Unknown Artist";
+        // Buffering counts as playing so the button doesn't flicker on track changes
+        boolean isPlaying = engine.getState() == PlaybackEngine.State.PLAYING
+            || engine.getState() == PlaybackEngine.State.BUFFERING;
+
+        if (posted && isPlaying == postedPlaying && title.equals(postedTitle) && artist.equals(postedArtist)) {
+            // Seeks and position-only changes don't touch the notification
+            return;
+        }
+
+        // Only the play/pause action differs between updates; the rest comes from the cache
+        Notification notification = getBuilder()
             .setContentTitle(title)
             .setContentText(artist)
-            .setSmallIcon(android.R.drawable.ic_media_play)
-            .setContentIntent(pendingIntent)
-            .setCustomContentView(notificationLayout)
-            .setOngoing(true)
-            .setPriority(NotificationCompat.PRIORITY_LOW)
-            .setVisibility(NotificationCompat.VISIBILITY_PUBLIC)
+            .clearActions()
+            .addAction(previousAction)
+            .addAction(isPlaying ? pauseAction : playAction)
+            .addAction(nextAction)
+            .setOngoing(isPlaying)
             .build();
 
-        startForeground(NOTIFICATION_ID, notification);
+        // The first post after a start must go through startForeground(), even when paused
+        boolean entering = !foreground && (isPlaying || !posted);
+        if (entering) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                startForeground(NOTIFICATION_ID, notification, ServiceInfo.FOREGROUND_SERVICE_TYPE_MEDIA_PLAYBACK);
+            } else {
+                startForeground(NOTIFICATION_ID, notification);
+            }
+            foreground = true;
+        }
+        if (foreground && !isPlaying) {
+            // Keep the notification but let the user swipe it away, which sends STOP
+            stopForeground(STOP_FOREGROUND_DETACH);
+            foreground = false;
+        }
+        if (!entering || !isPlaying) {
+            notificationManager.notify(NOTIFICATION_ID, notification);
+        }
+        posted = true;
+        postedTitle = title;
+        postedArtist = artist;
+        postedPlaying = isPlaying;
+        lastPostAt = SystemClock.uptimeMillis();
+    }
+
+    private NotificationCompat.Builder getBuilder() {
+        if (builder == null) {
+            previousAction = new NotificationCompat.Action(
+                android.R.drawable.ic_media_previous, "Previous", getActionIntent("PREVIOUS", 1));
+            pauseAction = new NotificationCompat.Action(
+                android.R.drawable.ic_media_pause, "Pause", getActionIntent("PAUSE", 0));
+            playAction = new NotificationCompat.Action(
+                android.R.drawable.ic_media_play, "Play", getActionIntent("PLAY", 3));
+            nextAction = new NotificationCompat.Action(
+                android.R.drawable.ic_media_next, "Next", getActionIntent("NEXT", 2));
+
+            builder = new NotificationCompat.Builder(this, CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.ic_media_play)
+                .setContentIntent(mediaSession.getController().getSessionActivity())
+                .setDeleteIntent(getActionIntent("STOP", 4))
+                .setStyle(new MediaStyle()
+                    .setMediaSession(mediaSession.getSessionToken())
+                    .setShowActionsInCompactView(0, 1, 2))
+                .setOnlyAlertOnce(true)
+                .setShowWhen(false)
+                .setPriority(NotificationCompat.PRIORITY_LOW)
+                .setVisibility(NotificationCompat.VISIBILITY_PUBLIC);
+        }
+        return builder;
+    }
+
+    // One PendingIntent per button, created on first use
+    private PendingIntent getActionIntent(String action, int requestCode) {
+        PendingIntent pendingIntent = actionIntents.get(action);
+        if (pendingIntent == null) {
+            Intent intent = new Intent(this, MusicNotificationService.class);
+            intent.setAction(action);
+            pendingIntent = PendingIntent.getService(
+                this, requestCode, intent, PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+            );
+            actionIntents.put(action, pendingIntent);
+        }
+        return pendingIntent;
     }
 
     @Override
@@ -0,0 +1,312 @@
+package com.animusic;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.LifecycleEventListener;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// JS face of the native PlaybackEngine: commands go in, state changes come out as events.
+// Playback itself never waits on the JS thread. Discrete changes are emitted immediately;
+// position is sampled every tick and sent in batches, only while playing, while a screen subscribes
+// and while the app is in the foreground.
+public class MusicPlaybackModule extends ReactContextBaseJavaModule
+        implements PlaybackEngine.Listener, LifecycleEventListener {
+    public static final String STATE_EVENT = "PlaybackStateChanged";
+    public static final String PROGRESS_EVENT = "PlaybackProgress";
+    private static final long DEFAULT_TICK_MS = 250;
+    // Four samples per event: one bridge crossing a second at the default tick
+    private static final int DEFAULT_BATCH_SIZE = 4;
+    private static final long MIN_TICK_MS = 50;
+    private static final int MAX_BATCH_SIZE = 20;
+
+    private final PlaybackEngine engine;
+    // Tick state below is only touched on the main looper
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable tick = this::onTick;
+    private final double[] samples = new double[MAX_BATCH_SIZE];
+    private int sampleCount;
+    private long tickMs = DEFAULT_TICK_MS;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int progressSubscribers;
+    private boolean hostResumed = true;
+    private boolean ticking;
+
+    public MusicPlaybackModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+        engine = PlaybackEngine.getInstance(reactContext);
+        engine.addListener(this);
+        reactContext.addLifecycleEventListener(this);
+    }
+
+    @Override
+    public String getName() {
+        return "MusicPlayback";
+    }
+
+    // tracks: [{id, path|url, title, artist, album, duration (seconds)}]
+    @ReactMethod
+    public void setQueue(ReadableArray tracks, double startIndex, boolean playWhenReady, Promise promise) {
+        List<PlaybackEngine.Track> queue = new ArrayList<>();
+        for (int i = 0; i < tracks.size(); i++) {
+            ReadableMap track = tracks.getMap(i);
+            String uri = getString(track, "path");
+            if (uri == null) {
+                uri = getString(track, "url");
+            }
+            if (uri == null) {
+                promise.reject("INVALID_TRACK", "Track " + i + " has no path or url");
+                return;
+            }
+            String id = getString(track, "id");
+            queue.add(new PlaybackEngine.Track(
+                id != null ? id : uri,
+                uri,
+                getString(track, "title"),
+                getString(track, "artist"),
+                getString(track, "album"),
+                track.hasKey("duration") && !track.isNull("duration") ? (long) (track.getDouble("duration") * 1000) : 0));
+        }
+        engine.setQueue(queue, (int) startIndex, playWhenReady);
+        promise.resolve(queue.size());
+    }
+
+    @ReactMethod
+    public void play(Promise promise) {
+        engine.play();
+        promise.resolve(true);
+    }
+
+    @ReactMethod
+    public void pause(Promise promise) {
+        engine.pause();
+        promise.resolve(true);
+    }
+
+    @ReactMethod
+    public void togglePlayPause(Promise promise) {
+        engine.togglePlayPause();
+        promise.resolve(true);
+    }
+
+    @ReactMethod
+    public void stop(Promise promise) {
+        engine.stop();
+        promise.resolve(true);
+    }
+
+    @ReactMethod
+    public void skipToNext(Promise promise) {
+        engine.skipToNext();
+        promise.resolve(true);
+    }
+
+    @ReactMethod
+    public void skipToPrevious(Promise promise) {
+        engine.skipToPrevious();
+        promise.resolve(true);
+    }
+
+    @ReactMethod
+    public void skipTo(double index, Promise promise) {
+        engine.skipTo((int) index);
+        promise.resolve(true);
+    }
+
+    // Seconds, like the rest of the JS player API
+    @ReactMethod
+    public void seekTo(double seconds, Promise promise) {
+        engine.seekTo((long) (seconds * 1000));
+        promise.resolve(true);
+    }
+
+    @ReactMethod
+    public void setVolume(double volume, Promise promise) {
+        engine.setVolume((float) Math.max(0, Math.min(1, volume)));
+        promise.resolve(true);
+    }
+
+    // Pre-buffers the next queued track and hands over at end of stream; on by default
+    @ReactMethod
+    public void setGapless(boolean enabled, Promise promise) {
+        engine.setGapless(enabled);
+        promise.resolve(enabled);
+    }
+
+    @ReactMethod
+    public void getState(Promise promise) {
+        engine.post(() -> promise.resolve(toStateMap(engine)));
+    }
+
+    // Samples position every intervalMs and emits PlaybackProgress once batchSize samples are in
+    @ReactMethod
+    public void setProgressUpdates(double intervalMs, double samplesPerEvent, Promise promise) {
+        long interval = Math.max(MIN_TICK_MS, (long) intervalMs);
+        int batch = Math.max(1, Math.min(MAX_BATCH_SIZE, (int) samplesPerEvent));
+        handler.post(() -> {
+            tickMs = interval;
+            batchSize = batch;
+            sampleCount = 0;
+            stopTicking();
+            updateTicking();
+        });
+        promise.resolve(true);
+    }
+
+    // Ticks run only while a screen wants them; removeListeners can't tell events apart,
+    // so progress subscribers register explicitly
+    @ReactMethod
+    public void startProgressUpdates() {
+        handler.post(() -> {
+            progressSubscribers++;
+            updateTicking();
+        });
+    }
+
+    @ReactMethod
+    public void stopProgressUpdates() {
+        handler.post(() -> {
+            progressSubscribers = Math.max(0, progressSubscribers - 1);
+            updateTicking();
+        });
+    }
+
+    @ReactMethod
+    public void addListener(String eventName) {
+        // Required for NativeEventEmitter
+    }
+
+    @ReactMethod
+    public void removeListeners(double count) {
+        // Required for NativeEventEmitter
+    }
+
+    @Override
+    public void onPlaybackStateChanged(PlaybackEngine engine) {
+        // The state event carries the position, so samples taken before it are stale
+        sampleCount = 0;
+        emit(STATE_EVENT, toStateMap(engine));
+        updateTicking();
+    }
+
+    @Override
+    public void onHostResume() {
+        hostResumed = true;
+        // Screens were not updated while in the background; catch them up at once
+        emit(STATE_EVENT, toStateMap(engine));
+        updateTicking();
+    }
+
+    @Override
+    public void onHostPause() {
+        hostResumed = false;
+        updateTicking();
+    }
+
+    @Override
+    public void onHostDestroy() {
+        hostResumed = false;
+        updateTicking();
+    }
+
+    @Override
+    public void invalidate() {
+        // Playback outlives the JS runtime; only stop listening
+        engine.removeListener(this);
+        getReactApplicationContext().removeLifecycleEventListener(this);
+        handler.post(this::stopTicking);
+        super.invalidate();
+    }
+
+    private void updateTicking() {
+        boolean shouldTick = progressSubscribers > 0 && hostResumed && engine.isPlaying();
+        if (shouldTick && !ticking) {
+            ticking = true;
+            handler.postDelayed(tick, tickMs);
+        } else if (!shouldTick && ticking) {
+            stopTicking();
+        }
+    }
+
+    private void stopTicking() {
+        handler.removeCallbacks(tick);
+        ticking = false;
+        sampleCount = 0;
+    }
+
+    private void onTick() {
+        if (!ticking) {
+            return;
+        }
+        samples[sampleCount++] = engine.getPositionMs() / 1000.0;
+        if (sampleCount >= batchSize) {
+            WritableArray batch = Arguments.createArray();
+            for (int i = 0; i < sampleCount; i++) {
+                batch.pushDouble(samples[i]);
+            }
+            WritableMap event = Arguments.createMap();
+            event.putDouble("position", samples[sampleCount - 1]);
+            event.putDouble("duration", engine.getDurationMs() / 1000.0);
+            event.putInt("index", engine.getIndex());
+            // Oldest first, intervalMs apart, for screens that animate between events
+            event.putArray("samples", batch);
+            event.putDouble("intervalMs", tickMs);
+            sampleCount = 0;
+            emit(PROGRESS_EVENT, event);
+        }
+        handler.postDelayed(tick, tickMs);
+    }
+
+    private void emit(String eventName, WritableMap params) {
+        if (getReactApplicationContext().hasActiveReactInstance()) {
+            getReactApplicationContext()
+                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                .emit(eventName, params);
+        }
+    }
+
+    // Must be called on the main looper
+    static WritableMap toStateMap(PlaybackEngine engine) {
+        WritableMap map = Arguments.createMap();
+        map.putString("state", engine.getState().name().toLowerCase());
+        map.putBoolean("isPlaying", engine.isPlaying());
+        map.putInt("index", engine.getIndex());
+        map.putInt("queueLength", engine.getQueue().size());
+        map.putBoolean("gapless", engine.isGapless());
+        map.putDouble("position", engine.getPositionMs() / 1000.0);
+        map.putDouble("duration", engine.getDurationMs() / 1000.0);
+
+        PlaybackEngine.Track track = engine.getCurrentTrack();
+        if (track != null) {
+            WritableMap current = Arguments.createMap();
+            current.putString("id", track.id);
+            current.putString("path", track.uri);
+            current.putString("title", track.title);
+            current.putString("artist", track.artist);
+            current.putString("album", track.album);
+            map.putMap("track", current);
+        } else {
+            map.putNull("track");
+        }
+        if (engine.getErrorMessage() != null) {
+            map.putString("error", engine.getErrorMessage());
+        }
+        return map;
+    }
+
+    private static String getString(ReadableMap map, String key) {
+        return map.hasKey(key) && !map.isNull(key) ? map.getString(key) : null;
+    }
+}
@@ -0,0 +1,149 @@
+package com.animusic;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.Promise;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs blocking file/MediaStore work for the native modules so it never sits on the
+// shared native-modules thread. Each module gets its own serial queue on a small shared pool,
+// so a slow delete only delays later work from the same module.
+public class NativeIoExecutor {
+    private static final String TAG = "NativeIoExecutor";
+    private static final int POOL_SIZE = 3;
+    private static final int MAX_PENDING_PER_QUEUE = 64;
+
+    private static NativeIoExecutor instance;
+
+    private final ThreadPoolExecutor pool;
+    private final Map<String, IoQueue> queues = new HashMap<>();
+
+    public static synchronized NativeIoExecutor getInstance() {
+        if (instance == null) {
+            instance = new NativeIoExecutor();
+        }
+        return instance;
+    }
+
+    private NativeIoExecutor() {
+        AtomicInteger threadCount = new AtomicInteger(1);
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "animusic-io-" + threadCount.getAndIncrement());
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        };
+        pool = new ThreadPoolExecutor(
+            POOL_SIZE, POOL_SIZE,
+            30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            threadFactory
+        );
+        pool.allowCoreThreadTimeOut(true);
+    }
+
+    public synchronized IoQueue queue(String name) {
+        IoQueue queue = queues.get(name);
+        if (queue == null) {
+            queue = new IoQueue(name);
+            queues.put(name, queue);
+        }
+        return queue;
+    }
+
+    // True once the running task has been cancelled
+    public static boolean isCancelled() {
+        return Thread.currentThread().isInterrupted();
+    }
+
+    public class IoQueue {
+        private final String name;
+        private final ArrayDeque<PendingTask> pending = new ArrayDeque<>();
+        private Thread activeThread;
+        private boolean running;
+
+        private IoQueue(String name) {
+            this.name = name;
+        }
+
+        // Queues the task; the promise is rejected if the queue is full, the task throws,
+        // or the task is cancelled before it starts
+        public void submit(Promise promise, Runnable task) {
+            synchronized (this) {
+                if (pending.size() >= MAX_PENDING_PER_QUEUE) {
+                    Log.w(TAG, name + " queue full, rejecting task");
+                    promise.reject("QUEUE_FULL", "Too many pending operations, try again later");
+                    return;
+                }
+                pending.add(new PendingTask(promise, task));
+                if (running) {
+                    return;
+                }
+                running = true;
+            }
+            pool.execute(this::drain);
+        }
+
+        // Rejects everything still waiting and interrupts the task in progress
+        public int cancelAll() {
+            ArrayDeque<PendingTask> cancelled;
+            synchronized (this) {
+                cancelled = new ArrayDeque<>(pending);
+                pending.clear();
+                if (activeThread != null) {
+                    activeThread.interrupt();
+                }
+            }
+            for (PendingTask task : cancelled) {
+                task.promise.reject("CANCELLED", "Operation cancelled");
+            }
+            Log.d(TAG, name + ": cancelled " + cancelled.size() + " pending tasks");
+            return cancelled.size();
+        }
+
+        private void drain() {
+            while (true) {
+                PendingTask next;
+                synchronized (this) {
+                    next = pending.poll();
+                    if (next == null) {
+                        running = false;
+                        activeThread = null;
+                        return;
+                    }
+                    activeThread = Thread.currentThread();
+                }
+
+                try {
+                    next.task.run();
+                } catch (Exception e) {
+                    Log.e(TAG, name + " task failed", e);
+                    next.promise.reject("ERROR", e.getMessage());
+                } finally {
+                    synchronized (this) {
+                        activeThread = null;
+                    }
+                    // Don't carry a cancellation over to the next task
+                    Thread.interrupted();
+                }
+            }
+        }
+    }
+
+    private static class PendingTask {
+        final Promise promise;
+        final Runnable task;
+
+        PendingTask(Promise promise, Runnable task) {
+            this.promise = promise;
+            this.task = task;
+        }
+    }
+}
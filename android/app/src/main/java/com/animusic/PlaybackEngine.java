@@ -0,0 +1,587 @@
+package com.animusic;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.media.AudioAttributes;
+import android.media.AudioFocusRequest;
+import android.media.AudioManager;
+import android.media.MediaPlayer;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Native player, queue and audio focus. Everything runs on the main looper, so track
+// transitions and notification controls keep working while the JS thread is busy.
+// MusicNotificationService keeps the process in the foreground while there is something to play.
+// In gapless mode the next queued track is prepared ahead of time and chained with
+// setNextMediaPlayer, so the platform hands over at end of stream without a load gap.
+public class PlaybackEngine implements AudioManager.OnAudioFocusChangeListener {
+    private static final String TAG = "PlaybackEngine";
+    // skipToPrevious restarts the current track once it has played this long
+    private static final long RESTART_THRESHOLD_MS = 3_000;
+    private static final float DUCK_VOLUME = 0.2f;
+
+    public enum State {
+        IDLE,
+        BUFFERING,
+        PLAYING,
+        PAUSED,
+        STOPPED,
+        ERROR
+    }
+
+    public static class Track {
+        public final String id;
+        // File path, content:// URI or http(s) URL
+        public final String uri;
+        public final String title;
+        public final String artist;
+        public final String album;
+        public final long durationMs;
+
+        public Track(String id, String uri, String title, String artist, String album, long durationMs) {
+            this.id = id;
+            this.uri = uri;
+            this.title = title;
+            this.artist = artist;
+            this.album = album;
+            this.durationMs = durationMs;
+        }
+    }
+
+    public interface Listener {
+        void onPlaybackStateChanged(PlaybackEngine engine);
+    }
+
+    private static PlaybackEngine instance;
+
+    private final Context context;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final AudioManager audioManager;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final List<Track> queue = new ArrayList<>();
+
+    private MediaPlayer player;
+    private boolean prepared;
+    // Pre-buffered player for index + 1, chained to player once both are prepared
+    private MediaPlayer nextPlayer;
+    private boolean nextPrepared;
+    private boolean gapless = true;
+    // Volume set through setVolume (sleep timer fades); ducking lowers it while another app talks
+    private float volume = 1f;
+    private boolean ducked;
+    private int index = -1;
+    private State state = State.IDLE;
+    private boolean playWhenReady;
+    private String errorMessage;
+
+    private AudioFocusRequest focusRequest;
+    private boolean hasFocus;
+    private boolean resumeOnFocusGain;
+    private boolean noisyReceiverRegistered;
+
+    // Headphones unplugged or a Bluetooth headset dropped: pause instead of blasting the speaker
+    private final BroadcastReceiver noisyReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (AudioManager.ACTION_AUDIO_BECOMING_NOISY.equals(intent.getAction())) {
+                pause();
+            }
+        }
+    };
+
+    public static synchronized PlaybackEngine getInstance(Context context) {
+        if (instance == null) {
+            instance = new PlaybackEngine(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    // Package-private for tests, everything else goes through getInstance
+    PlaybackEngine(Context context) {
+        this.context = context;
+        this.audioManager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // Runs on the main looper, immediately when already there
+    public void post(Runnable command) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            command.run();
+        } else {
+            handler.post(command);
+        }
+    }
+
+    // Getters are meant for the main looper; use post() from other threads
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isPlaying() {
+        return state == State.PLAYING;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public List<Track> getQueue() {
+        return Collections.unmodifiableList(queue);
+    }
+
+    public Track getCurrentTrack() {
+        return index >= 0 && index < queue.size() ? queue.get(index) : null;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public long getPositionMs() {
+        if (player == null || !prepared) {
+            return 0;
+        }
+        return player.getCurrentPosition();
+    }
+
+    public long getDurationMs() {
+        if (player != null && prepared) {
+            return player.getDuration();
+        }
+        Track track = getCurrentTrack();
+        return track != null ? track.durationMs : 0;
+    }
+
+    public void setGapless(boolean enabled) {
+        post(() -> {
+            gapless = enabled;
+            if (enabled) {
+                prepareNext();
+            } else {
+                releaseNextPlayer();
+            }
+        });
+    }
+
+    public boolean isGapless() {
+        return gapless;
+    }
+
+    public void setQueue(List<Track> tracks, int startIndex, boolean play) {
+        post(() -> {
+            queue.clear();
+            queue.addAll(tracks);
+            if (queue.isEmpty()) {
+                stop();
+                return;
+            }
+            load(Math.max(0, Math.min(startIndex, queue.size() - 1)), play);
+        });
+    }
+
+    public void skipTo(int newIndex) {
+        post(() -> {
+            if (newIndex >= 0 && newIndex < queue.size()) {
+                load(newIndex, true);
+            }
+        });
+    }
+
+    public void play() {
+        post(() -> {
+            if (player == null) {
+                if (getCurrentTrack() != null) {
+                    load(index, true);
+                }
+                return;
+            }
+            playWhenReady = true;
+            if (prepared) {
+                startPlayer();
+            }
+        });
+    }
+
+    public void pause() {
+        post(() -> {
+            playWhenReady = false;
+            resumeOnFocusGain = false;
+            if (player != null && prepared && player.isPlaying()) {
+                player.pause();
+            }
+            unregisterNoisyReceiver();
+            if (state == State.PLAYING || state == State.BUFFERING) {
+                setState(State.PAUSED);
+            }
+        });
+    }
+
+    public void togglePlayPause() {
+        post(() -> {
+            if (playWhenReady && state != State.ERROR) {
+                pause();
+            } else {
+                play();
+            }
+        });
+    }
+
+    public void skipToNext() {
+        post(() -> {
+            if (nextPlayer != null && nextPrepared) {
+                // Already buffered: switch instantly instead of loading again
+                promoteNextPlayer(false);
+            } else if (index + 1 < queue.size()) {
+                load(index + 1, true);
+            }
+        });
+    }
+
+    public void skipToPrevious() {
+        post(() -> {
+            if (getPositionMs() > RESTART_THRESHOLD_MS || index <= 0) {
+                seekTo(0);
+            } else {
+                load(index - 1, true);
+            }
+        });
+    }
+
+    public void seekTo(long positionMs) {
+        post(() -> {
+            if (player != null && prepared) {
+                player.seekTo((int) Math.max(0, Math.min(positionMs, getDurationMs())));
+                notifyListeners();
+            }
+        });
+    }
+
+    public void setVolume(float newVolume) {
+        post(() -> {
+            volume = newVolume;
+            if (player != null) {
+                applyVolume(player);
+            }
+        });
+    }
+
+    private void applyVolume(MediaPlayer mediaPlayer) {
+        float effective = ducked ? Math.min(volume, DUCK_VOLUME) : volume;
+        mediaPlayer.setVolume(effective, effective);
+    }
+
+    // Releases the player and audio focus; the queue is kept so play() can start over
+    public void stop() {
+        post(() -> {
+            playWhenReady = false;
+            releasePlayer();
+            abandonFocus();
+            unregisterNoisyReceiver();
+            setState(State.STOPPED);
+        });
+    }
+
+    private void load(int newIndex, boolean play) {
+        releasePlayer();
+        index = newIndex;
+        playWhenReady = play;
+        errorMessage = null;
+        Track track = queue.get(newIndex);
+
+        player = createPlayer();
+        setState(State.BUFFERING);
+        try {
+            setDataSource(player, track);
+            player.prepareAsync();
+        } catch (Exception e) {
+            Log.e(TAG, "Could not load " + track.uri, e);
+            onPlayerError("Could not load " + track.title + ": " + e.getMessage());
+        }
+    }
+
+    // Platform setup only; tests hand out fake players here
+    MediaPlayer newMediaPlayer() {
+        MediaPlayer mediaPlayer = new MediaPlayer();
+        mediaPlayer.setAudioAttributes(new AudioAttributes.Builder()
+            .setUsage(AudioAttributes.USAGE_MEDIA)
+            .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
+            .build());
+        mediaPlayer.setWakeMode(context, PowerManager.PARTIAL_WAKE_LOCK);
+        return mediaPlayer;
+    }
+
+    private MediaPlayer createPlayer() {
+        MediaPlayer mediaPlayer = newMediaPlayer();
+        applyVolume(mediaPlayer);
+        mediaPlayer.setOnPreparedListener(this::onPrepared);
+        mediaPlayer.setOnCompletionListener(mp -> {
+            if (mp == player) {
+                onTrackCompleted();
+            }
+        });
+        mediaPlayer.setOnErrorListener((mp, what, extra) -> {
+            if (mp == player) {
+                onPlayerError("Playback error " + what + "/" + extra);
+            } else if (mp == nextPlayer) {
+                // Completion falls back to a regular load, which reports the error if it persists
+                Log.w(TAG, "Pre-buffering the next track failed: " + what + "/" + extra);
+                releaseNextPlayer();
+            }
+            return true;
+        });
+        return mediaPlayer;
+    }
+
+    private void setDataSource(MediaPlayer mediaPlayer, Track track) throws IOException {
+        if (track.uri.startsWith("/")) {
+            mediaPlayer.setDataSource(track.uri);
+        } else {
+            mediaPlayer.setDataSource(context, Uri.parse(track.uri));
+        }
+    }
+
+    private void onPrepared(MediaPlayer mp) {
+        if (mp == player) {
+            prepared = true;
+            if (playWhenReady) {
+                startPlayer();
+            } else {
+                setState(State.PAUSED);
+            }
+            prepareNext();
+        } else if (mp == nextPlayer) {
+            nextPrepared = true;
+            if (player != null && prepared) {
+                player.setNextMediaPlayer(mp);
+            }
+        }
+    }
+
+    // Only once the current player is prepared, otherwise there is nothing to chain onto
+    private void prepareNext() {
+        if (!gapless || nextPlayer != null || player == null || !prepared || index + 1 >= queue.size()) {
+            return;
+        }
+        Track track = queue.get(index + 1);
+        nextPlayer = createPlayer();
+        try {
+            setDataSource(nextPlayer, track);
+            nextPlayer.prepareAsync();
+        } catch (Exception e) {
+            Log.w(TAG, "Could not pre-buffer " + track.uri, e);
+            releaseNextPlayer();
+        }
+    }
+
+    // Makes the pre-buffered player current. At end of stream the platform has already
+    // started it; on a manual skip it is started here.
+    private void promoteNextPlayer(boolean alreadyStarted) {
+        MediaPlayer previous = player;
+        player = nextPlayer;
+        prepared = true;
+        nextPlayer = null;
+        nextPrepared = false;
+        index++;
+        errorMessage = null;
+        // A fade or duck in progress must survive the handover
+        applyVolume(player);
+        if (previous != null) {
+            if (!alreadyStarted) {
+                previous.setNextMediaPlayer(null);
+            }
+            previous.release();
+        }
+
+        if (alreadyStarted) {
+            setState(State.PLAYING);
+        } else {
+            playWhenReady = true;
+            startPlayer();
+        }
+        prepareNext();
+    }
+
+    private void startPlayer() {
+        if (state == State.PLAYING && player.isPlaying()) {
+            return;
+        }
+        if (!requestFocus()) {
+            Log.w(TAG, "Audio focus denied");
+            playWhenReady = false;
+            setState(State.PAUSED);
+            return;
+        }
+        registerNoisyReceiver();
+        player.start();
+        // Playing implies the foreground service, started before listeners hear about it
+        MusicNotificationService.ensureStarted(context);
+        setState(State.PLAYING);
+    }
+
+    private void onTrackCompleted() {
+        if (nextPlayer != null && nextPrepared) {
+            promoteNextPlayer(true);
+            return;
+        }
+        if (index + 1 < queue.size()) {
+            load(index + 1, true);
+            return;
+        }
+        // End of the queue: park on the last track so play() replays it
+        playWhenReady = false;
+        releasePlayer();
+        abandonFocus();
+        unregisterNoisyReceiver();
+        setState(State.STOPPED);
+    }
+
+    private void onPlayerError(String message) {
+        Log.e(TAG, message);
+        errorMessage = message;
+        releasePlayer();
+        if (playWhenReady && index + 1 < queue.size()) {
+            // A single unreadable file shouldn't end the session
+            load(index + 1, true);
+            return;
+        }
+        playWhenReady = false;
+        abandonFocus();
+        unregisterNoisyReceiver();
+        setState(State.ERROR);
+    }
+
+    private void releasePlayer() {
+        releaseNextPlayer();
+        if (player != null) {
+            player.release();
+            player = null;
+        }
+        prepared = false;
+    }
+
+    private void releaseNextPlayer() {
+        if (nextPlayer == null) {
+            return;
+        }
+        if (player != null && prepared) {
+            player.setNextMediaPlayer(null);
+        }
+        nextPlayer.release();
+        nextPlayer = null;
+        nextPrepared = false;
+    }
+
+    boolean requestFocus() {
+        if (hasFocus) {
+            return true;
+        }
+        int result;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            if (focusRequest == null) {
+                focusRequest = new AudioFocusRequest.Builder(AudioManager.AUDIOFOCUS_GAIN)
+                    .setAudioAttributes(new AudioAttributes.Builder()
+                        .setUsage(AudioAttributes.USAGE_MEDIA)
+                        .setContentType(AudioAttributes.CONTENT_TYPE_MUSIC)
+                        .build())
+                    .setOnAudioFocusChangeListener(this, handler)
+                    .build();
+            }
+            result = audioManager.requestAudioFocus(focusRequest);
+        } else {
+            result = audioManager.requestAudioFocus(this, AudioManager.STREAM_MUSIC, AudioManager.AUDIOFOCUS_GAIN);
+        }
+        hasFocus = result == AudioManager.AUDIOFOCUS_REQUEST_GRANTED;
+        return hasFocus;
+    }
+
+    private void abandonFocus() {
+        if (!hasFocus) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            audioManager.abandonAudioFocusRequest(focusRequest);
+        } else {
+            audioManager.abandonAudioFocus(this);
+        }
+        hasFocus = false;
+    }
+
+    @Override
+    public void onAudioFocusChange(int focusChange) {
+        post(() -> {
+            switch (focusChange) {
+                case AudioManager.AUDIOFOCUS_GAIN:
+                    ducked = false;
+                    if (player != null) {
+                        applyVolume(player);
+                    }
+                    if (resumeOnFocusGain) {
+                        resumeOnFocusGain = false;
+                        play();
+                    }
+                    break;
+                case AudioManager.AUDIOFOCUS_LOSS_TRANSIENT_CAN_DUCK:
+                    ducked = true;
+                    if (player != null) {
+                        applyVolume(player);
+                    }
+                    break;
+                case AudioManager.AUDIOFOCUS_LOSS_TRANSIENT:
+                    boolean wasPlaying = state == State.PLAYING;
+                    pause();
+                    // pause() clears it, so set it afterwards
+                    resumeOnFocusGain = wasPlaying;
+                    break;
+                case AudioManager.AUDIOFOCUS_LOSS:
+                    hasFocus = false;
+                    pause();
+                    break;
+            }
+        });
+    }
+
+    private void registerNoisyReceiver() {
+        if (!noisyReceiverRegistered) {
+            context.registerReceiver(noisyReceiver, new IntentFilter(AudioManager.ACTION_AUDIO_BECOMING_NOISY));
+            noisyReceiverRegistered = true;
+        }
+    }
+
+    private void unregisterNoisyReceiver() {
+        if (noisyReceiverRegistered) {
+            context.unregisterReceiver(noisyReceiver);
+            noisyReceiverRegistered = false;
+        }
+    }
+
+    private void setState(State newState) {
+        state = newState;
+        notifyListeners();
+    }
+
+    private void notifyListeners() {
+        for (Listener listener : listeners) {
+            listener.onPlaybackStateChanged(this);
+        }
+    }
+}
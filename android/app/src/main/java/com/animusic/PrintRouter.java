@@ -0,0 +1,79 @@
+package com.animusic;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Picks the printer session for a job that isn't pinned to one printer
+public class PrintRouter {
+    public enum Policy {
+        ROUND_ROBIN,
+        LEAST_LOADED
+    }
+
+    private final AtomicInteger nextIndex = new AtomicInteger();
+    private volatile Policy policy = Policy.LEAST_LOADED;
+
+    public void setPolicy(Policy policy) {
+        this.policy = policy;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    // Prefers sessions that are ready for work; returns null when there are none at all
+    public PrinterSession choose(Collection<PrinterSession> sessions) {
+        return pick(sessions, true);
+    }
+
+    // The session choose() would return next, without moving the round-robin rotation on
+    public PrinterSession peek(Collection<PrinterSession> sessions) {
+        return pick(sessions, false);
+    }
+
+    private PrinterSession pick(Collection<PrinterSession> sessions, boolean advance) {
+        List<PrinterSession> candidates = new ArrayList<>();
+        for (PrinterSession session : sessions) {
+            if (session.isAcceptingJobs()) {
+                candidates.add(session);
+            }
+        }
+        if (candidates.isEmpty()) {
+            // Everything is busy or paused: still queue somewhere rather than fail
+            for (PrinterSession session : sessions) {
+                if (session.getConnection().isUsable()) {
+                    candidates.add(session);
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+
+        if (policy == Policy.ROUND_ROBIN) {
+            // Stable order so the rotation doesn't depend on map iteration
+            Collections.sort(candidates, Comparator.comparing(PrinterSession::getAddress));
+            int index = Math.floorMod(advance ? nextIndex.getAndIncrement() : nextIndex.get(), candidates.size());
+            return candidates.get(index);
+        }
+
+        PrinterSession best = null;
+        long bestLoad = Long.MAX_VALUE;
+        for (PrinterSession session : candidates) {
+            long load = session.getSpooler().getQueuedBytes();
+            if (load < bestLoad) {
+                best = session;
+                bestLoad = load;
+            }
+        }
+        return best;
+    }
+
+    public static Policy parsePolicy(String value) {
+        return "roundRobin".equals(value) ? Policy.ROUND_ROBIN : Policy.LEAST_LOADED;
+    }
+}
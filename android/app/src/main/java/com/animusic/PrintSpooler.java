@@ -0,0 +1,263 @@
+package com.animusic;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+// Feeds print jobs to one printer from its own writer thread. Jobs that queue up behind a slow
+// link are coalesced into one buffered write and a single flush. The queue is bounded by bytes,
+// so a link that falls behind pushes back on JS instead of growing without limit.
+public class PrintSpooler {
+    private static final String TAG = "PrintSpooler";
+    // Above this the spooler reports itself saturated, below LOW_WATER_BYTES it clears again
+    public static final long HIGH_WATER_BYTES = 256 * 1024;
+    private static final long LOW_WATER_BYTES = 64 * 1024;
+    // Hard cap: submit() refuses jobs beyond this
+    public static final long MAX_QUEUED_BYTES = 1024 * 1024;
+    private static final int MAX_BATCH_BYTES = 32 * 1024;
+
+    public interface JobCallback {
+        void onFinished(Job job, Exception error);
+    }
+
+    public interface Listener {
+        void onJobFinished(Job job, Exception error);
+
+        void onBackpressure(boolean saturated, int queuedJobs, long queuedBytes);
+    }
+
+    public static class Job {
+        public final String id;
+        public final byte[] data;
+        final JobCallback callback;
+        long submittedNanos;
+
+        public Job(String id, byte[] data, JobCallback callback) {
+            this.id = id;
+            this.data = data;
+            this.callback = callback;
+        }
+    }
+
+    private final PrinterConnection connection;
+    private final Listener listener;
+    private final PrinterMetrics metrics;
+    private final ArrayDeque<Job> queue = new ArrayDeque<>();
+    // Reused for every coalesced write
+    private final byte[] batchBuffer = new byte[MAX_BATCH_BYTES];
+    // Jobs too big for one batch are streamed in chunks and survive link drops
+    private final ChunkedPrintWriter streamWriter;
+    private final Thread writer;
+
+    private long queuedBytes;
+    private boolean saturated;
+    private boolean paused;
+    private boolean shutdown;
+
+    public PrintSpooler(PrinterConnection connection, Listener listener, PrinterMetrics metrics) {
+        this.connection = connection;
+        this.listener = listener;
+        this.metrics = metrics;
+        this.streamWriter = new ChunkedPrintWriter(connection, metrics);
+        this.writer = new Thread(this::runWriter, "animusic-spooler-" + connection.getAddress());
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // Returns false when the spooler is shut down or the queue is full
+    public boolean submit(Job job) {
+        boolean becameSaturated;
+        int jobs;
+        long bytes;
+        synchronized (this) {
+            // A single oversized job is still accepted into an empty queue
+            if (shutdown || (!queue.isEmpty() && queuedBytes + job.data.length > MAX_QUEUED_BYTES)) {
+                return false;
+            }
+            job.submittedNanos = System.nanoTime();
+            queue.addLast(job);
+            queuedBytes += job.data.length;
+            metrics.recordQueueDepth(queue.size());
+            notifyAll();
+
+            becameSaturated = !saturated && queuedBytes >= HIGH_WATER_BYTES;
+            if (becameSaturated) {
+                saturated = true;
+            }
+            jobs = queue.size();
+            bytes = queuedBytes;
+        }
+        if (becameSaturated) {
+            Log.d(TAG, "Spooler saturated: " + jobs + " jobs, " + bytes + " bytes queued");
+            listener.onBackpressure(true, jobs, bytes);
+        }
+        return true;
+    }
+
+    public synchronized int getQueuedJobs() {
+        return queue.size();
+    }
+
+    public synchronized long getQueuedBytes() {
+        return queuedBytes;
+    }
+
+    public synchronized boolean isSaturated() {
+        return saturated;
+    }
+
+    // Holds queued jobs (e.g. while the printer is out of paper) until resumed
+    public synchronized void setPaused(boolean paused) {
+        this.paused = paused;
+        notifyAll();
+    }
+
+    public synchronized boolean isPaused() {
+        return paused;
+    }
+
+    public void setStreamingOptions(ChunkedPrintWriter.Options options) {
+        streamWriter.setOptions(options);
+    }
+
+    // Fails every job still queued; a batch already being written is allowed to finish
+    public void shutdown() {
+        List<Job> dropped;
+        synchronized (this) {
+            if (shutdown) {
+                return;
+            }
+            shutdown = true;
+            dropped = new ArrayList<>(queue);
+            queue.clear();
+            queuedBytes = 0;
+            notifyAll();
+        }
+        IOException error = new IOException("Print queue shut down");
+        for (Job job : dropped) {
+            finish(job, error);
+        }
+    }
+
+    private void runWriter() {
+        while (true) {
+            List<Job> batch = takeBatch();
+            if (batch == null) {
+                return;
+            }
+            write(batch);
+        }
+    }
+
+    private List<Job> takeBatch() {
+        List<Job> batch = new ArrayList<>();
+        boolean cleared;
+        int jobs;
+        long bytes;
+        synchronized (this) {
+            while ((queue.isEmpty() || paused) && !shutdown) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    return null;
+                }
+            }
+            if (shutdown) {
+                return null;
+            }
+
+            Job first = queue.pollFirst();
+            batch.add(first);
+            long batchBytes = first.data.length;
+            while (!queue.isEmpty() && batchBytes + queue.peekFirst().data.length <= MAX_BATCH_BYTES) {
+                Job next = queue.pollFirst();
+                batch.add(next);
+                batchBytes += next.data.length;
+            }
+            queuedBytes -= batchBytes;
+
+            cleared = saturated && queuedBytes <= LOW_WATER_BYTES;
+            if (cleared) {
+                saturated = false;
+            }
+            jobs = queue.size();
+            bytes = queuedBytes;
+        }
+        if (cleared) {
+            listener.onBackpressure(false, jobs, bytes);
+        }
+        return batch;
+    }
+
+    private void write(List<Job> batch) {
+        if (batch.size() == 1 && batch.get(0).data.length > MAX_BATCH_BYTES) {
+            writeStreamed(batch.get(0));
+            return;
+        }
+
+        long[] timings = new long[2];
+        try {
+            connection.execute(out -> {
+                long start = System.nanoTime();
+                int length = 0;
+                for (Job job : batch) {
+                    System.arraycopy(job.data, 0, batchBuffer, length, job.data.length);
+                    length += job.data.length;
+                }
+                out.write(batchBuffer, 0, length);
+                long written = System.nanoTime();
+                out.flush();
+                timings[0] = written - start;
+                timings[1] = System.nanoTime() - written;
+            });
+        } catch (IOException e) {
+            // Nothing in an unflushed batch is known to have printed
+            Log.e(TAG, "Print batch of " + batch.size() + " jobs failed", e);
+            metrics.recordFailure(e);
+            for (Job job : batch) {
+                metrics.recordJob(false, System.nanoTime() - job.submittedNanos);
+                finish(job, e);
+            }
+            return;
+        }
+
+        int bytes = 0;
+        for (Job job : batch) {
+            bytes += job.data.length;
+        }
+        metrics.recordBatch(bytes, timings[0], timings[1]);
+        long now = System.nanoTime();
+        for (Job job : batch) {
+            metrics.recordJob(true, now - job.submittedNanos);
+            finish(job, null);
+        }
+    }
+
+    private void writeStreamed(Job job) {
+        try {
+            streamWriter.write(job.id, job.data);
+        } catch (IOException e) {
+            Log.e(TAG, "Streaming job " + job.id + " failed", e);
+            metrics.recordFailure(e);
+            metrics.recordJob(false, System.nanoTime() - job.submittedNanos);
+            finish(job, e);
+            return;
+        }
+        metrics.recordJob(true, System.nanoTime() - job.submittedNanos);
+        finish(job, null);
+    }
+
+    private void finish(Job job, Exception error) {
+        try {
+            if (job.callback != null) {
+                job.callback.onFinished(job, error);
+            }
+            listener.onJobFinished(job, error);
+        } catch (Exception e) {
+            Log.e(TAG, "Job callback failed for " + job.id, e);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.animusic;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Owns one link to a printer. Connects off the bridge thread, keeps the link warm with
+// periodic health checks and, once a link drops, reconnects in the background with backoff.
+// Print jobs borrow the live stream through execute() instead of holding on to it.
+public class PrinterConnection {
+    private static final String TAG = "PrinterConnection";
+
+    private static final long HEALTH_CHECK_MS = 15_000;
+    // A single NUL keeps idle links from being dropped by the printer's power saving
+    private static final long KEEPALIVE_IDLE_MS = 30_000;
+    private static final long INITIAL_BACKOFF_MS = 500;
+    private static final long MAX_BACKOFF_MS = 30_000;
+    public static final long DEFAULT_WAIT_MS = 10_000;
+
+    public enum State {
+        DISCONNECTED,
+        CONNECTING,
+        CONNECTED,
+        RECONNECTING,
+        CLOSED
+    }
+
+    public interface Listener {
+        void onStateChanged(PrinterConnection connection, State state);
+    }
+
+    public interface ConnectCallback {
+        void onConnected();
+
+        void onFailed(Exception e);
+    }
+
+    public interface StreamTask {
+        void run(OutputStream out) throws IOException;
+    }
+
+    private final PrinterTransport transport;
+    private final Listener listener;
+    private final PrinterMetrics metrics;
+    private final ScheduledExecutorService executor;
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private PrinterTransport.Link link;
+    private OutputStream outputStream;
+    private InputStream inputStream;
+    private State state = State.DISCONNECTED;
+    private long backoffMs = INITIAL_BACKOFF_MS;
+    private volatile long lastActivity;
+    private ScheduledFuture<?> healthCheck;
+    private ScheduledFuture<?> pendingReconnect;
+
+    public PrinterConnection(PrinterTransport transport, Listener listener, PrinterMetrics metrics) {
+        this.transport = transport;
+        this.listener = listener;
+        this.metrics = metrics;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "animusic-printer-" + transport.getAddress());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public String getAddress() {
+        return transport.getAddress();
+    }
+
+    public String getName() {
+        return transport.getName();
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    // True while the link is up or being brought back; jobs will wait for it
+    public synchronized boolean isUsable() {
+        return state == State.CONNECTED || state == State.RECONNECTING || state == State.CONNECTING;
+    }
+
+    public synchronized InputStream getInputStream() {
+        return inputStream;
+    }
+
+    public void connect(ConnectCallback callback) {
+        executor.execute(() -> {
+            if (getState() == State.CONNECTED) {
+                callback.onConnected();
+                return;
+            }
+            try {
+                open(State.CONNECTING);
+                startHealthChecks();
+                callback.onConnected();
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to connect to " + getAddress(), e);
+                metrics.recordFailure(e);
+                setState(State.DISCONNECTED);
+                callback.onFailed(e);
+            }
+        });
+    }
+
+    // Runs the task against the live stream, waiting out a reconnect if one is in progress
+    public void execute(StreamTask task) throws IOException {
+        OutputStream out = awaitStream(DEFAULT_WAIT_MS);
+        writeLock.lock();
+        try {
+            task.run(out);
+            lastActivity = System.currentTimeMillis();
+        } catch (IOException e) {
+            onLinkLost(e);
+            throw e;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Forces the link down and into reconnect, e.g. when a write has stalled.
+    // Closing the link also unblocks any write stuck on it.
+    public void dropLink(IOException cause) {
+        onLinkLost(cause);
+    }
+
+    public void close() {
+        synchronized (this) {
+            if (state == State.CLOSED) {
+                return;
+            }
+            cancel(healthCheck);
+            cancel(pendingReconnect);
+            closeLink();
+            state = State.CLOSED;
+            notifyAll();
+        }
+        executor.shutdownNow();
+        listener.onStateChanged(this, State.CLOSED);
+    }
+
+    private synchronized OutputStream awaitStream(long timeoutMs) throws IOException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (state == State.CONNECTING || state == State.RECONNECTING) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new IOException("Timed out waiting for printer connection");
+            }
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted waiting for printer connection");
+            }
+        }
+        if (state != State.CONNECTED || outputStream == null) {
+            throw new IOException("Printer not connected");
+        }
+        return outputStream;
+    }
+
+    private void open(State connectingState) throws IOException {
+        setState(connectingState);
+        long start = System.nanoTime();
+        PrinterTransport.Link newLink = transport.open();
+
+        synchronized (this) {
+            if (state == State.CLOSED) {
+                closeQuietly(newLink);
+                throw new IOException("Connection closed while connecting");
+            }
+            try {
+                outputStream = newLink.getOutputStream();
+                inputStream = newLink.getInputStream();
+            } catch (IOException e) {
+                closeQuietly(newLink);
+                outputStream = null;
+                inputStream = null;
+                throw e;
+            }
+            link = newLink;
+            backoffMs = INITIAL_BACKOFF_MS;
+            lastActivity = System.currentTimeMillis();
+        }
+        long elapsed = System.nanoTime() - start;
+        metrics.recordConnect(elapsed, connectingState == State.RECONNECTING);
+        Log.d(TAG, "Connected to " + getAddress() + " in " + elapsed / 1_000_000 + " ms");
+        setState(State.CONNECTED);
+    }
+
+    private void onLinkLost(Exception cause) {
+        synchronized (this) {
+            if (state != State.CONNECTED) {
+                return;
+            }
+            Log.w(TAG, "Link to " + getAddress() + " lost: " + cause.getMessage());
+            metrics.recordFailure(cause);
+            closeLink();
+        }
+        setState(State.RECONNECTING);
+        scheduleReconnect();
+    }
+
+    private synchronized void scheduleReconnect() {
+        if (state != State.RECONNECTING) {
+            return;
+        }
+        pendingReconnect = executor.schedule(this::reconnect, backoffMs, TimeUnit.MILLISECONDS);
+        backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+    }
+
+    private void reconnect() {
+        if (getState() != State.RECONNECTING) {
+            return;
+        }
+        try {
+            open(State.RECONNECTING);
+        } catch (Exception e) {
+            Log.w(TAG, "Reconnect to " + getAddress() + " failed, retrying", e);
+            metrics.recordFailure(e);
+            scheduleReconnect();
+        }
+    }
+
+    private synchronized void startHealthChecks() {
+        if (healthCheck == null) {
+            healthCheck = executor.scheduleWithFixedDelay(this::checkHealth,
+                HEALTH_CHECK_MS, HEALTH_CHECK_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void checkHealth() {
+        PrinterTransport.Link current;
+        OutputStream out;
+        synchronized (this) {
+            if (state != State.CONNECTED) {
+                return;
+            }
+            current = link;
+            out = outputStream;
+        }
+
+        if (!current.isConnected()) {
+            onLinkLost(new IOException("Link no longer connected"));
+            return;
+        }
+        if (System.currentTimeMillis() - lastActivity < KEEPALIVE_IDLE_MS || !writeLock.tryLock()) {
+            // Recent traffic already proves the link, and a running job must not be interleaved
+            return;
+        }
+        try {
+            out.write(0);
+            out.flush();
+            lastActivity = System.currentTimeMillis();
+        } catch (IOException e) {
+            onLinkLost(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void setState(State newState) {
+        synchronized (this) {
+            if (state == State.CLOSED || state == newState) {
+                return;
+            }
+            state = newState;
+            notifyAll();
+        }
+        listener.onStateChanged(this, newState);
+    }
+
+    private synchronized void closeLink() {
+        closeQuietly(link);
+        link = null;
+        outputStream = null;
+        inputStream = null;
+    }
+
+    private static void closeQuietly(PrinterTransport.Link link) {
+        if (link == null) {
+            return;
+        }
+        try {
+            link.close();
+        } catch (IOException e) {
+            Log.e(TAG, "Error closing link", e);
+        }
+    }
+
+    private static void cancel(ScheduledFuture<?> future) {
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.animusic;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothClass;
+import android.bluetooth.BluetoothDevice;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// Finds printers: bonded devices first (instant), then an active inquiry that reports each
+// printer as it answers. Everything seen is cached with a TTL so a reopened printer picker
+// is filled straight from memory.
+public class PrinterDiscovery {
+    private static final String TAG = "PrinterDiscovery";
+    public static final long DEFAULT_TTL_MS = 60_000;
+    private static final String[] NAME_HINTS = {"honeywell", "6824", "pc42", "printer"};
+
+    public static class Printer {
+        public final String address;
+        public final String name;
+        public final boolean bonded;
+        public final int rssi;
+        final long seenAt;
+
+        Printer(String address, String name, boolean bonded, int rssi, long seenAt) {
+            this.address = address;
+            this.name = name;
+            this.bonded = bonded;
+            this.rssi = rssi;
+            this.seenAt = seenAt;
+        }
+    }
+
+    public interface Listener {
+        void onPrinterFound(Printer printer);
+
+        void onDiscoveryFinished(int found);
+    }
+
+    private final Context context;
+    private final BluetoothAdapter adapter;
+    private final Map<String, Printer> cache = new LinkedHashMap<>();
+    // Addresses already reported during the current scan
+    private final Set<String> reported = new HashSet<>();
+
+    private Listener listener;
+    private BroadcastReceiver receiver;
+
+    public PrinterDiscovery(Context context, BluetoothAdapter adapter) {
+        this.context = context.getApplicationContext();
+        this.adapter = adapter;
+    }
+
+    // Printers seen within ttlMs, bonded ones first
+    public synchronized List<Printer> getCached(long ttlMs) {
+        long cutoff = System.currentTimeMillis() - ttlMs;
+        List<Printer> printers = new ArrayList<>();
+        for (Printer printer : cache.values()) {
+            if (printer.seenAt >= cutoff && printer.bonded) {
+                printers.add(printer);
+            }
+        }
+        for (Printer printer : cache.values()) {
+            if (printer.seenAt >= cutoff && !printer.bonded) {
+                printers.add(printer);
+            }
+        }
+        return printers;
+    }
+
+    // Walks bonded devices into the cache and returns the printers among them
+    public List<Printer> refreshBonded() {
+        List<Printer> printers = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (BluetoothDevice device : adapter.getBondedDevices()) {
+            Printer printer = toPrinter(device, true, Short.MIN_VALUE, now);
+            if (printer != null) {
+                remember(printer);
+                printers.add(printer);
+            }
+        }
+        return printers;
+    }
+
+    public synchronized boolean isScanning() {
+        return receiver != null;
+    }
+
+    public void startScan(Listener scanListener) {
+        synchronized (this) {
+            listener = scanListener;
+            reported.clear();
+            if (receiver == null) {
+                receiver = new BroadcastReceiver() {
+                    @Override
+                    public void onReceive(Context context, Intent intent) {
+                        handleBroadcast(intent);
+                    }
+                };
+                IntentFilter filter = new IntentFilter(BluetoothDevice.ACTION_FOUND);
+                filter.addAction(BluetoothAdapter.ACTION_DISCOVERY_FINISHED);
+                context.registerReceiver(receiver, filter);
+            }
+        }
+
+        try {
+            // Bonded printers need no inquiry, report them right away
+            for (Printer printer : refreshBonded()) {
+                report(printer);
+            }
+
+            if (adapter.isDiscovering()) {
+                adapter.cancelDiscovery();
+            }
+            if (!adapter.startDiscovery()) {
+                Log.e(TAG, "Could not start Bluetooth discovery");
+                finishScan();
+            }
+        } catch (RuntimeException e) {
+            // The caller gets the exception, it must not also get a finished callback
+            releaseReceiver();
+            throw e;
+        }
+    }
+
+    public void stopScan() {
+        if (isScanning()) {
+            adapter.cancelDiscovery();
+            finishScan();
+        }
+    }
+
+    private void handleBroadcast(Intent intent) {
+        String action = intent.getAction();
+        if (BluetoothDevice.ACTION_FOUND.equals(action)) {
+            BluetoothDevice device = intent.getParcelableExtra(BluetoothDevice.EXTRA_DEVICE);
+            if (device == null) {
+                return;
+            }
+            int rssi = intent.getShortExtra(BluetoothDevice.EXTRA_RSSI, Short.MIN_VALUE);
+            Printer printer = toPrinter(device, device.getBondState() == BluetoothDevice.BOND_BONDED,
+                rssi, System.currentTimeMillis());
+            if (printer != null) {
+                remember(printer);
+                report(printer);
+            }
+        } else if (BluetoothAdapter.ACTION_DISCOVERY_FINISHED.equals(action)) {
+            finishScan();
+        }
+    }
+
+    private void report(Printer printer) {
+        Listener current;
+        synchronized (this) {
+            if (!reported.add(printer.address)) {
+                return;
+            }
+            current = listener;
+        }
+        if (current != null) {
+            current.onPrinterFound(printer);
+        }
+    }
+
+    private void finishScan() {
+        Listener current;
+        int found;
+        synchronized (this) {
+            if (receiver == null) {
+                return;
+            }
+            current = listener;
+            found = reported.size();
+            releaseReceiver();
+        }
+        Log.d(TAG, "Discovery finished, " + found + " printers");
+        if (current != null) {
+            current.onDiscoveryFinished(found);
+        }
+    }
+
+    private synchronized void releaseReceiver() {
+        if (receiver == null) {
+            return;
+        }
+        try {
+            context.unregisterReceiver(receiver);
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Discovery receiver already unregistered");
+        }
+        receiver = null;
+        listener = null;
+    }
+
+    private synchronized void remember(Printer printer) {
+        cache.put(printer.address, printer);
+    }
+
+    private static Printer toPrinter(BluetoothDevice device, boolean bonded, int rssi, long seenAt) {
+        String name = device.getName();
+        if (!isPrinter(device.getBluetoothClass(), name)) {
+            return null;
+        }
+        return new Printer(device.getAddress(), name != null ? name : device.getAddress(), bonded, rssi, seenAt);
+    }
+
+    static boolean isPrinter(BluetoothClass bluetoothClass, String name) {
+        if (bluetoothClass != null) {
+            // Imaging major class with the printer minor bit, or a device advertising rendering
+            if (bluetoothClass.getMajorDeviceClass() == BluetoothClass.Device.Major.IMAGING
+                && (bluetoothClass.getDeviceClass() & 0x80) != 0) {
+                return true;
+            }
+            if (bluetoothClass.hasService(BluetoothClass.Service.RENDER)) {
+                return true;
+            }
+        }
+        if (name == null) {
+            return false;
+        }
+        String lowerName = name.toLowerCase(Locale.ROOT);
+        for (String hint : NAME_HINTS) {
+            if (lowerName.contains(hint)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,205 @@
+package com.animusic;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Per-printer counters and latency histograms, cheap enough to record on every write.
+// Separates link time (connect, write, flush) from queueing so slow Bluetooth, slow printers
+// and slow job building can be told apart.
+public class PrinterMetrics {
+    private static final int MAX_FAILURE_REASONS = 20;
+
+    // Fixed log-scale buckets; upper bounds in milliseconds, the last bucket is open-ended
+    public static class Histogram {
+        static final long[] BOUNDS_MS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000};
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS_MS.length + 1);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalMicros = new AtomicLong();
+        private final AtomicLong maxMicros = new AtomicLong();
+
+        public void recordNanos(long nanos) {
+            long micros = nanos / 1_000;
+            int bucket = 0;
+            while (bucket < BOUNDS_MS.length && micros > BOUNDS_MS[bucket] * 1_000) {
+                bucket++;
+            }
+            buckets.incrementAndGet(bucket);
+            count.incrementAndGet();
+            totalMicros.addAndGet(micros);
+            long max;
+            while (micros > (max = maxMicros.get()) && !maxMicros.compareAndSet(max, micros)) {
+                // retry
+            }
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public double getMeanMs() {
+            long n = count.get();
+            return n == 0 ? 0 : totalMicros.get() / 1000.0 / n;
+        }
+
+        public double getMaxMs() {
+            return maxMicros.get() / 1000.0;
+        }
+
+        // Upper bound of the bucket holding the given percentile (0-100)
+        public double getPercentileMs(double percentile) {
+            long n = count.get();
+            if (n == 0) {
+                return 0;
+            }
+            long target = (long) Math.ceil(n * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= target) {
+                    return i < BOUNDS_MS.length ? BOUNDS_MS[i] : getMaxMs();
+                }
+            }
+            return getMaxMs();
+        }
+
+        void reset() {
+            for (int i = 0; i < buckets.length(); i++) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            totalMicros.set(0);
+            maxMicros.set(0);
+        }
+    }
+
+    public final Histogram connectLatency = new Histogram();
+    public final Histogram writeLatency = new Histogram();
+    public final Histogram flushLatency = new Histogram();
+    // Time from submit to the job's bytes being flushed
+    public final Histogram jobLatency = new Histogram();
+
+    private final AtomicLong connects = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong jobsCompleted = new AtomicLong();
+    private final AtomicLong jobsFailed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong maxQueueDepth = new AtomicLong();
+    private final AtomicLong resumes = new AtomicLong();
+    private final AtomicLong stalls = new AtomicLong();
+    private final Map<String, Long> failureReasons = new LinkedHashMap<>();
+
+    public void recordConnect(long nanos, boolean reconnect) {
+        connectLatency.recordNanos(nanos);
+        connects.incrementAndGet();
+        if (reconnect) {
+            reconnects.incrementAndGet();
+        }
+    }
+
+    public void recordBatch(int bytes, long writeNanos, long flushNanos) {
+        batches.incrementAndGet();
+        bytesWritten.addAndGet(bytes);
+        writeLatency.recordNanos(writeNanos);
+        flushLatency.recordNanos(flushNanos);
+    }
+
+    public void recordResume() {
+        resumes.incrementAndGet();
+    }
+
+    public void recordStall() {
+        stalls.incrementAndGet();
+    }
+
+    public void recordJob(boolean succeeded, long queuedNanos) {
+        (succeeded ? jobsCompleted : jobsFailed).incrementAndGet();
+        jobLatency.recordNanos(queuedNanos);
+    }
+
+    public void recordQueueDepth(int depth) {
+        long max;
+        while (depth > (max = maxQueueDepth.get()) && !maxQueueDepth.compareAndSet(max, depth)) {
+            // retry
+        }
+    }
+
+    public void recordFailure(Throwable error) {
+        String reason = error.getClass().getSimpleName();
+        if (error.getMessage() != null) {
+            reason += ": " + error.getMessage();
+        }
+        synchronized (failureReasons) {
+            Long count = failureReasons.get(reason);
+            if (count != null || failureReasons.size() < MAX_FAILURE_REASONS) {
+                failureReasons.put(reason, count == null ? 1 : count + 1);
+            } else {
+                failureReasons.put("other", failureReasons.containsKey("other") ? failureReasons.get("other") + 1 : 1);
+            }
+        }
+    }
+
+    public long getConnects() {
+        return connects.get();
+    }
+
+    public long getReconnects() {
+        return reconnects.get();
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public long getJobsCompleted() {
+        return jobsCompleted.get();
+    }
+
+    public long getJobsFailed() {
+        return jobsFailed.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    public long getMaxQueueDepth() {
+        return maxQueueDepth.get();
+    }
+
+    public long getResumes() {
+        return resumes.get();
+    }
+
+    public long getStalls() {
+        return stalls.get();
+    }
+
+    public Map<String, Long> getFailureReasons() {
+        synchronized (failureReasons) {
+            return new LinkedHashMap<>(failureReasons);
+        }
+    }
+
+    public void reset() {
+        connectLatency.reset();
+        writeLatency.reset();
+        flushLatency.reset();
+        jobLatency.reset();
+        connects.set(0);
+        reconnects.set(0);
+        bytesWritten.set(0);
+        jobsCompleted.set(0);
+        jobsFailed.set(0);
+        batches.set(0);
+        maxQueueDepth.set(0);
+        resumes.set(0);
+        stalls.set(0);
+        synchronized (failureReasons) {
+            failureReasons.clear();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.animusic;
+
+// Everything kept per connected printer: the link, its spooler and its status reader.
+// Sessions are independent, so one slow or jammed printer never holds up another.
+public class PrinterSession {
+    public interface Listener {
+        void onConnectionStateChanged(PrinterSession session, PrinterConnection.State state);
+
+        void onJobFinished(PrinterSession session, PrintSpooler.Job job, Exception error);
+
+        void onBackpressure(PrinterSession session, boolean saturated, int queuedJobs, long queuedBytes);
+
+        void onStatusChanged(PrinterSession session, PrinterStatusReader.Status status);
+    }
+
+    private final PrinterMetrics metrics = new PrinterMetrics();
+    private final PrinterConnection connection;
+    private final PrintSpooler spooler;
+    private final PrinterStatusReader statusReader;
+
+    public PrinterSession(PrinterTransport transport, Listener listener) {
+        connection = new PrinterConnection(transport,
+            (source, state) -> listener.onConnectionStateChanged(this, state), metrics);
+        spooler = new PrintSpooler(connection, new PrintSpooler.Listener() {
+            @Override
+            public void onJobFinished(PrintSpooler.Job job, Exception error) {
+                listener.onJobFinished(PrinterSession.this, job, error);
+            }
+
+            @Override
+            public void onBackpressure(boolean saturated, int queuedJobs, long queuedBytes) {
+                listener.onBackpressure(PrinterSession.this, saturated, queuedJobs, queuedBytes);
+            }
+        }, metrics);
+        statusReader = new PrinterStatusReader(connection, status -> {
+            // Hold jobs rather than feed a printer that can't print them
+            spooler.setPaused(!status.canPrint());
+            listener.onStatusChanged(this, status);
+        });
+    }
+
+    public void connect(PrinterConnection.ConnectCallback callback) {
+        connection.connect(new PrinterConnection.ConnectCallback() {
+            @Override
+            public void onConnected() {
+                statusReader.start();
+                callback.onConnected();
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                callback.onFailed(e);
+            }
+        });
+    }
+
+    public String getAddress() {
+        return connection.getAddress();
+    }
+
+    public PrinterConnection getConnection() {
+        return connection;
+    }
+
+    public PrintSpooler getSpooler() {
+        return spooler;
+    }
+
+    public void setStreamingOptions(ChunkedPrintWriter.Options options) {
+        spooler.setStreamingOptions(options);
+    }
+
+    public PrinterMetrics getMetrics() {
+        return metrics;
+    }
+
+    public PrinterStatusReader.Status getStatus() {
+        return statusReader.getStatus();
+    }
+
+    // Whether the router should send new jobs here
+    public boolean isAcceptingJobs() {
+        return connection.isUsable() && getStatus().canPrint() && !spooler.isSaturated();
+    }
+
+    public boolean submit(PrintSpooler.Job job) {
+        return spooler.submit(job);
+    }
+
+    public void close() {
+        statusReader.stop();
+        spooler.shutdown();
+        connection.close();
+    }
+}
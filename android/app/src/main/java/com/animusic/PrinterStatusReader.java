@@ -0,0 +1,198 @@
+package com.animusic;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Polls the printer with DLE EOT real-time status queries and reports changes. A background
+// thread drains the socket's InputStream into a small queue so polls can wait with a timeout.
+// Printers that never answer are reported as unresponsive instead of offline.
+public class PrinterStatusReader {
+    private static final String TAG = "PrinterStatusReader";
+    public static final long POLL_INTERVAL_MS = 5_000;
+    private static final long REPLY_TIMEOUT_MS = 500;
+    private static final long RETRY_READ_MS = 500;
+
+    // DLE EOT n: 1 = printer status, 2 = offline cause, 4 = paper sensor
+    private static final byte[] STATUS_QUERY = {
+        0x10, 0x04, 0x01,
+        0x10, 0x04, 0x02,
+        0x10, 0x04, 0x04
+    };
+
+    public static class Status {
+        // False when the printer did not answer the status queries at all
+        public final boolean responsive;
+        public final boolean online;
+        public final boolean coverOpen;
+        public final boolean paperLow;
+        public final boolean paperOut;
+        public final boolean error;
+
+        Status(boolean responsive, boolean online, boolean coverOpen, boolean paperLow, boolean paperOut, boolean error) {
+            this.responsive = responsive;
+            this.online = online;
+            this.coverOpen = coverOpen;
+            this.paperLow = paperLow;
+            this.paperOut = paperOut;
+            this.error = error;
+        }
+
+        static Status unknown() {
+            return new Status(false, true, false, false, false, false);
+        }
+
+        // Unresponsive printers are given the benefit of the doubt
+        public boolean canPrint() {
+            return !responsive || (online && !coverOpen && !paperOut && !error);
+        }
+
+        public String paperLevel() {
+            if (!responsive) {
+                return "unknown";
+            }
+            return paperOut ? "out" : paperLow ? "low" : "normal";
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Status)) {
+                return false;
+            }
+            Status status = (Status) other;
+            return responsive == status.responsive && online == status.online && coverOpen == status.coverOpen
+                && paperLow == status.paperLow && paperOut == status.paperOut && error == status.error;
+        }
+
+        @Override
+        public int hashCode() {
+            return (responsive ? 1 : 0) | (online ? 2 : 0) | (coverOpen ? 4 : 0)
+                | (paperLow ? 8 : 0) | (paperOut ? 16 : 0) | (error ? 32 : 0);
+        }
+    }
+
+    public interface Listener {
+        void onStatusChanged(Status status);
+    }
+
+    private final PrinterConnection connection;
+    private final Listener listener;
+    private final BlockingQueue<Integer> replies = new ArrayBlockingQueue<>(64);
+    private final ScheduledExecutorService poller;
+    private final Thread reader;
+
+    private volatile boolean running = true;
+    private boolean started;
+    private volatile Status status = Status.unknown();
+
+    public PrinterStatusReader(PrinterConnection connection, Listener listener) {
+        this.connection = connection;
+        this.listener = listener;
+        this.reader = new Thread(this::readLoop, "animusic-status-" + connection.getAddress());
+        reader.setDaemon(true);
+        this.poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "animusic-status-poll-" + connection.getAddress());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public synchronized void start() {
+        if (started || !running) {
+            return;
+        }
+        started = true;
+        reader.start();
+        poller.scheduleWithFixedDelay(this::poll, 0, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void stop() {
+        running = false;
+        poller.shutdownNow();
+        reader.interrupt();
+    }
+
+    private void readLoop() {
+        while (running) {
+            InputStream in = connection.getInputStream();
+            try {
+                int value = in != null ? in.read() : -1;
+                if (value < 0) {
+                    // No link, or it just closed; wait for a reconnect to hand out a new stream
+                    Thread.sleep(RETRY_READ_MS);
+                    continue;
+                }
+                if (!replies.offer(value)) {
+                    // Unsolicited bytes nobody asked for, keep the newest
+                    replies.poll();
+                    replies.offer(value);
+                }
+            } catch (IOException e) {
+                sleepQuietly();
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void poll() {
+        if (connection.getState() != PrinterConnection.State.CONNECTED) {
+            return;
+        }
+
+        Status next;
+        try {
+            replies.clear();
+            connection.execute(out -> {
+                out.write(STATUS_QUERY);
+                out.flush();
+            });
+            Integer printer = replies.poll(REPLY_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            Integer offline = printer != null ? replies.poll(REPLY_TIMEOUT_MS, TimeUnit.MILLISECONDS) : null;
+            Integer paper = offline != null ? replies.poll(REPLY_TIMEOUT_MS, TimeUnit.MILLISECONDS) : null;
+            next = paper != null ? parse(printer, offline, paper) : Status.unknown();
+        } catch (IOException e) {
+            // The connection handles reconnecting, keep the last known state until then
+            Log.w(TAG, "Status poll failed: " + e.getMessage());
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        if (!next.equals(status)) {
+            status = next;
+            Log.d(TAG, "Printer " + connection.getAddress() + " status: paper " + next.paperLevel()
+                + ", online " + next.online);
+            listener.onStatusChanged(next);
+        }
+    }
+
+    static Status parse(int printer, int offline, int paper) {
+        boolean online = (printer & 0x08) == 0;
+        boolean coverOpen = (offline & 0x04) != 0;
+        boolean paperOut = (offline & 0x20) != 0 || (paper & 0x60) != 0;
+        boolean paperLow = (paper & 0x0C) != 0;
+        boolean error = (offline & 0x40) != 0;
+        return new Status(true, online, coverOpen, paperLow, paperOut, error);
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(RETRY_READ_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.animusic;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+// How PrinterConnection reaches a printer. Bluetooth on devices; tests plug in a loopback
+// printer so connection, spooling and streaming can run on a plain JVM.
+public interface PrinterTransport {
+    String getAddress();
+
+    String getName();
+
+    // Blocks until the link is up; called off the bridge thread
+    Link open() throws IOException;
+
+    interface Link extends Closeable {
+        OutputStream getOutputStream() throws IOException;
+
+        InputStream getInputStream() throws IOException;
+
+        boolean isConnected();
+    }
+}
@@ -0,0 +1,462 @@
+package com.animusic;
+
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.IntentSender;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.media.MediaScannerConnection;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.provider.MediaStore;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Reversible delete. Android 11+ uses the MediaStore trash (IS_TRASHED, expires after 30 days);
+// older releases move the file into an app-private trash directory. Either way the real unlink
+// happens later in TrashPurgeJobService, while the device is idle and charging.
+public class TrashManager {
+    private static final String TAG = "TrashManager";
+    private static final String TRASH_DIR = "trash";
+    private static final String INDEX_PREFS = "MediaTrash";
+    private static final int MAX_QUERY_ARGS = 500;
+
+    public static final int PURGE_JOB_ID = 7301;
+    public static final int PURGE_BATCH_SIZE = 50;
+    // How long trashed files stay restorable before the purge job removes them
+    public static final long RETENTION_MS = 7L * 24 * 60 * 60 * 1000;
+    // MediaStore sets DATE_EXPIRES this far past the moment an item is trashed
+    private static final long MEDIA_STORE_EXPIRY_MS = 30L * 24 * 60 * 60 * 1000;
+
+    public static final String STATUS_TRASHED = "trashed";
+    public static final String STATUS_RESTORED = "restored";
+    public static final String STATUS_NOT_FOUND = "not_found";
+    public static final String STATUS_DENIED = "denied";
+    public static final String STATUS_FAILED = "failed";
+
+    public static class TrashedItem {
+        public final String originalPath;
+        public final long trashedAt;
+        public final long id;
+
+        TrashedItem(String originalPath, long trashedAt, long id) {
+            this.originalPath = originalPath;
+            this.trashedAt = trashedAt;
+            this.id = id;
+        }
+    }
+
+    public static class BatchOutcome {
+        // Per-path status in the caller's order, see the STATUS_ constants
+        public final LinkedHashMap<String, String> statuses = new LinkedHashMap<>();
+        public final List<String> consentPaths = new ArrayList<>();
+        public final List<Uri> consentUris = new ArrayList<>();
+        public IntentSender consent;
+        // Status every consent path gets once the dialog is approved
+        String approvedStatus;
+    }
+
+    private static TrashManager instance;
+
+    private final Context context;
+    private final MediaStoreIdCache idCache;
+    private final SharedPreferences index;
+
+    public static synchronized TrashManager getInstance(Context context) {
+        if (instance == null) {
+            instance = new TrashManager(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private TrashManager(Context context) {
+        this.context = context;
+        this.idCache = MediaStoreIdCache.getInstance(context);
+        this.index = context.getSharedPreferences(INDEX_PREFS, Context.MODE_PRIVATE);
+    }
+
+    public static boolean usesMediaStoreTrash() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R;
+    }
+
+    public BatchOutcome trash(Collection<String> filePaths) {
+        BatchOutcome batch = new BatchOutcome();
+        batch.approvedStatus = STATUS_TRASHED;
+        for (String filePath : filePaths) {
+            batch.statuses.put(MediaStoreIdCache.normalizePath(filePath), STATUS_FAILED);
+        }
+        if (batch.statuses.isEmpty()) {
+            return batch;
+        }
+
+        if (!usesMediaStoreTrash()) {
+            for (String path : batch.statuses.keySet()) {
+                batch.statuses.put(path, moveToTrashDir(path));
+            }
+            schedulePurge();
+            return batch;
+        }
+
+        Map<String, Long> ids = idCache.getIds(batch.statuses.keySet());
+        for (String path : batch.statuses.keySet()) {
+            Long id = ids.get(path);
+            if (id == null) {
+                batch.statuses.put(path, new File(path).exists() ? moveToTrashDir(path) : STATUS_NOT_FOUND);
+                continue;
+            }
+            batch.consentPaths.add(path);
+            batch.consentUris.add(ContentUris.withAppendedId(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, id));
+        }
+
+        if (!batch.consentUris.isEmpty()) {
+            if (DeletionEngine.hasAllFilesAccess()) {
+                setTrashed(batch, true);
+            } else {
+                batch.consent = MediaStore.createTrashRequest(
+                    context.getContentResolver(), batch.consentUris, true).getIntentSender();
+            }
+        }
+        schedulePurge();
+        return batch;
+    }
+
+    public BatchOutcome restore(Collection<String> filePaths) {
+        BatchOutcome batch = new BatchOutcome();
+        batch.approvedStatus = STATUS_RESTORED;
+        for (String filePath : filePaths) {
+            batch.statuses.put(MediaStoreIdCache.normalizePath(filePath), STATUS_NOT_FOUND);
+        }
+        if (batch.statuses.isEmpty()) {
+            return batch;
+        }
+
+        // Anything in the app trash directory comes back by moving it home
+        for (String path : batch.statuses.keySet()) {
+            String trashName = findTrashName(path);
+            if (trashName != null) {
+                batch.statuses.put(path, restoreFromTrashDir(trashName, path));
+            }
+        }
+
+        if (usesMediaStoreTrash()) {
+            Map<String, Long> ids = queryTrashedIds(batch.statuses.keySet());
+            for (Map.Entry<String, Long> entry : ids.entrySet()) {
+                batch.consentPaths.add(entry.getKey());
+                batch.consentUris.add(ContentUris.withAppendedId(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, entry.getValue()));
+            }
+            if (!batch.consentUris.isEmpty()) {
+                if (DeletionEngine.hasAllFilesAccess()) {
+                    setTrashed(batch, false);
+                } else {
+                    batch.consent = MediaStore.createTrashRequest(
+                        context.getContentResolver(), batch.consentUris, false).getIntentSender();
+                }
+            }
+        }
+        return batch;
+    }
+
+    // Records the user's answer to a trash or restore consent dialog
+    public void complete(BatchOutcome batch, boolean approved) {
+        for (String path : batch.consentPaths) {
+            batch.statuses.put(path, approved ? batch.approvedStatus : STATUS_DENIED);
+            if (approved) {
+                idCache.remove(path);
+            }
+        }
+    }
+
+    public List<TrashedItem> list() {
+        List<TrashedItem> items = new ArrayList<>();
+        for (Map.Entry<String, ?> entry : index.getAll().entrySet()) {
+            TrashedItem item = parseIndexEntry(entry.getValue());
+            if (item != null) {
+                items.add(item);
+            }
+        }
+
+        if (usesMediaStoreTrash()) {
+            Cursor cursor = queryTrashed(null, null, 0);
+            if (cursor != null) {
+                try {
+                    int idColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media._ID);
+                    int dataColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DATA);
+                    int expiresColumn = cursor.getColumnIndexOrThrow(MediaStore.MediaColumns.DATE_EXPIRES);
+                    while (cursor.moveToNext()) {
+                        long trashedAt = cursor.getLong(expiresColumn) * 1000 - MEDIA_STORE_EXPIRY_MS;
+                        items.add(new TrashedItem(cursor.getString(dataColumn), trashedAt, cursor.getLong(idColumn)));
+                    }
+                } finally {
+                    cursor.close();
+                }
+            }
+        }
+        return items;
+    }
+
+    // Permanently removes up to batchSize trashed files older than maxAgeMs. Returns how many went.
+    public int purge(long maxAgeMs, int batchSize) {
+        long cutoff = System.currentTimeMillis() - maxAgeMs;
+        int purged = 0;
+
+        for (Map.Entry<String, ?> entry : index.getAll().entrySet()) {
+            if (purged >= batchSize) {
+                return purged;
+            }
+            TrashedItem item = parseIndexEntry(entry.getValue());
+            if (item != null && item.trashedAt > cutoff) {
+                continue;
+            }
+            File file = new File(getTrashDir(), entry.getKey());
+            if (!file.exists() || file.delete()) {
+                index.edit().remove(entry.getKey()).apply();
+                purged++;
+            }
+        }
+
+        // Without All files access only the system can empty the MediaStore trash; it does so on expiry
+        if (usesMediaStoreTrash() && DeletionEngine.hasAllFilesAccess() && purged < batchSize) {
+            purged += purgeMediaStoreTrash((cutoff + MEDIA_STORE_EXPIRY_MS) / 1000, batchSize - purged);
+        }
+        return purged;
+    }
+
+    public boolean hasPurgeableItems() {
+        return !index.getAll().isEmpty() || (usesMediaStoreTrash() && DeletionEngine.hasAllFilesAccess());
+    }
+
+    public void schedulePurge() {
+        JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (scheduler == null || scheduler.getPendingJob(PURGE_JOB_ID) != null) {
+            return;
+        }
+
+        JobInfo job = new JobInfo.Builder(PURGE_JOB_ID, new ComponentName(context, TrashPurgeJobService.class))
+            .setRequiresDeviceIdle(true)
+            .setRequiresCharging(true)
+            .setPeriodic(24 * 60 * 60 * 1000L)
+            .build();
+        int result = scheduler.schedule(job);
+        Log.d(TAG, "Trash purge job scheduled: " + (result == JobScheduler.RESULT_SUCCESS));
+    }
+
+    private String moveToTrashDir(String path) {
+        File source = new File(path);
+        if (!source.exists()) {
+            return STATUS_NOT_FOUND;
+        }
+
+        // Same-named files from different folders can be trashed in the same millisecond
+        String trashName = UUID.randomUUID() + "_" + source.getName();
+        File target = new File(getTrashDir(), trashName);
+        if (!move(source, target)) {
+            Log.e(TAG, "Could not move to trash: " + path);
+            return STATUS_FAILED;
+        }
+
+        index.edit().putString(trashName, System.currentTimeMillis() + "|" + path).apply();
+        idCache.remove(path);
+        // Drops the stale MediaStore row for the old location
+        MediaScannerConnection.scanFile(context, new String[]{path}, null, null);
+        return STATUS_TRASHED;
+    }
+
+    private String restoreFromTrashDir(String trashName, String path) {
+        File source = new File(getTrashDir(), trashName);
+        File target = new File(path);
+        if (!source.exists()) {
+            index.edit().remove(trashName).apply();
+            return STATUS_NOT_FOUND;
+        }
+        if (target.exists() || !move(source, target)) {
+            Log.e(TAG, "Could not restore from trash: " + path);
+            return STATUS_FAILED;
+        }
+
+        index.edit().remove(trashName).apply();
+        MediaScannerConnection.scanFile(context, new String[]{path}, null, null);
+        return STATUS_RESTORED;
+    }
+
+    private String findTrashName(String path) {
+        for (Map.Entry<String, ?> entry : index.getAll().entrySet()) {
+            TrashedItem item = parseIndexEntry(entry.getValue());
+            if (item != null && item.originalPath.equals(path)) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    private void setTrashed(BatchOutcome batch, boolean trashed) {
+        ContentResolver resolver = context.getContentResolver();
+        ContentValues values = new ContentValues();
+        values.put(MediaStore.MediaColumns.IS_TRASHED, trashed ? 1 : 0);
+        for (int i = 0; i < batch.consentUris.size(); i++) {
+            String path = batch.consentPaths.get(i);
+            try {
+                boolean updated = resolver.update(batch.consentUris.get(i), values, null, null) > 0;
+                batch.statuses.put(path, updated ? batch.approvedStatus : STATUS_FAILED);
+                idCache.remove(path);
+            } catch (Exception e) {
+                Log.e(TAG, "Could not update trash state for " + path, e);
+                batch.statuses.put(path, STATUS_FAILED);
+            }
+        }
+        batch.consentPaths.clear();
+        batch.consentUris.clear();
+    }
+
+    private Map<String, Long> queryTrashedIds(Collection<String> paths) {
+        Map<String, Long> ids = new LinkedHashMap<>();
+        List<String> all = new ArrayList<>(paths);
+        for (int start = 0; start < all.size(); start += MAX_QUERY_ARGS) {
+            List<String> chunk = all.subList(start, Math.min(start + MAX_QUERY_ARGS, all.size()));
+
+            StringBuilder selection = new StringBuilder(MediaStore.Audio.Media.DATA).append(" IN (");
+            for (int i = 0; i < chunk.size(); i++) {
+                selection.append(i == 0 ? "?" : ",?");
+            }
+            selection.append(")");
+
+            Cursor cursor = queryTrashed(selection.toString(), chunk.toArray(new String[0]), 0);
+            if (cursor == null) {
+                continue;
+            }
+            try {
+                int idColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media._ID);
+                int dataColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DATA);
+                while (cursor.moveToNext()) {
+                    ids.put(cursor.getString(dataColumn), cursor.getLong(idColumn));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return ids;
+    }
+
+    private int purgeMediaStoreTrash(long expiresBeforeSeconds, int limit) {
+        ContentResolver resolver = context.getContentResolver();
+        Cursor cursor = queryTrashed(MediaStore.MediaColumns.DATE_EXPIRES + " <= ?",
+            new String[]{String.valueOf(expiresBeforeSeconds)}, limit);
+        if (cursor == null) {
+            return 0;
+        }
+
+        int purged = 0;
+        try {
+            int idColumn = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media._ID);
+            while (cursor.moveToNext()) {
+                Uri uri = ContentUris.withAppendedId(MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, cursor.getLong(idColumn));
+                try {
+                    purged += resolver.delete(uri, null, null);
+                } catch (SecurityException e) {
+                    Log.e(TAG, "Not allowed to purge " + uri, e);
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return purged;
+    }
+
+    private Cursor queryTrashed(String selection, String[] selectionArgs, int limit) {
+        Bundle queryArgs = new Bundle();
+        queryArgs.putInt(MediaStore.QUERY_ARG_MATCH_TRASHED, MediaStore.MATCH_ONLY);
+        if (selection != null) {
+            queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, selection);
+            queryArgs.putStringArray(ContentResolver.QUERY_ARG_SQL_SELECTION_ARGS, selectionArgs);
+        }
+        if (limit > 0) {
+            queryArgs.putInt(ContentResolver.QUERY_ARG_LIMIT, limit);
+        }
+        return context.getContentResolver().query(
+            MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
+            new String[]{MediaStore.Audio.Media._ID, MediaStore.Audio.Media.DATA, MediaStore.MediaColumns.DATE_EXPIRES},
+            queryArgs,
+            null
+        );
+    }
+
+    private File getTrashDir() {
+        // Same volume as the music in the common case, so trashing is a rename rather than a copy
+        File base = context.getExternalFilesDir(null);
+        File dir = new File(base != null ? base : context.getFilesDir(), TRASH_DIR);
+        if (!dir.exists() && dir.mkdirs()) {
+            try {
+                new File(dir, ".nomedia").createNewFile();
+            } catch (IOException e) {
+                Log.e(TAG, "Could not create .nomedia in trash", e);
+            }
+        }
+        return dir;
+    }
+
+    // Never replaces an existing target; the empty file claims the name before anything is moved
+    private static boolean move(File source, File target) {
+        try {
+            if (!target.createNewFile()) {
+                Log.e(TAG, "Refusing to overwrite " + target);
+                return false;
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Could not create " + target, e);
+            return false;
+        }
+        if (source.renameTo(target)) {
+            return true;
+        }
+        // Different volumes: copy, then drop the original
+        try (InputStream in = new FileInputStream(source); OutputStream out = new FileOutputStream(target)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Copy failed: " + source, e);
+            target.delete();
+            return false;
+        }
+        if (!source.delete()) {
+            target.delete();
+            return false;
+        }
+        return true;
+    }
+
+    private static TrashedItem parseIndexEntry(Object value) {
+        if (!(value instanceof String)) {
+            return null;
+        }
+        String entry = (String) value;
+        int separator = entry.indexOf('|');
+        if (separator < 0) {
+            return null;
+        }
+        try {
+            return new TrashedItem(entry.substring(separator + 1), Long.parseLong(entry.substring(0, separator)), -1);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.animusic;
+
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.util.Log;
+
+// Empties the trash in small batches while the device is idle and charging.
+// Stops between batches as soon as the scheduler pulls the constraints.
+public class TrashPurgeJobService extends JobService {
+    private static final String TAG = "TrashPurgeJob";
+
+    private volatile boolean stopped;
+    private Thread worker;
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        TrashManager trash = TrashManager.getInstance(this);
+        if (!trash.hasPurgeableItems()) {
+            // Nothing trashed, skip the worker thread for this window
+            Log.d(TAG, "Trash is empty, nothing to purge");
+            return false;
+        }
+
+        stopped = false;
+        worker = new Thread(() -> {
+            int total = 0;
+            try {
+                while (!stopped) {
+                    int purged = trash.purge(TrashManager.RETENTION_MS, TrashManager.PURGE_BATCH_SIZE);
+                    total += purged;
+                    if (purged < TrashManager.PURGE_BATCH_SIZE) {
+                        break;
+                    }
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Trash purge failed", e);
+            }
+            Log.d(TAG, "Purged " + total + " trashed files");
+            if (!stopped) {
+                jobFinished(params, false);
+            }
+        }, "animusic-trash-purge");
+        worker.setPriority(Thread.MIN_PRIORITY);
+        worker.start();
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        stopped = true;
+        // Periodic job, the next window picks up where this one stopped
+        return false;
+    }
+}
@@ -0,0 +1,103 @@
+package com.animusic;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ChunkedPrintWriterTest {
+    private final PrinterMetrics metrics = new PrinterMetrics();
+    private LoopbackPrinter printer;
+    private PrinterConnection connection;
+    private ChunkedPrintWriter writer;
+
+    @Before
+    public void setUp() throws Exception {
+        printer = new LoopbackPrinter("00:11:22:33:44:77");
+        connection = new PrinterConnection(printer, (source, state) -> { }, metrics);
+        PrinterTestSupport.connect(connection);
+        writer = new ChunkedPrintWriter(connection, metrics);
+        writer.setOptions(new ChunkedPrintWriter.Options(1024, 0, 5_000, 3));
+    }
+
+    @After
+    public void tearDown() {
+        connection.close();
+    }
+
+    @Test
+    public void streamsWholePayload() throws Exception {
+        byte[] data = PrinterTestSupport.pattern(10_000);
+        writer.write("job", data);
+
+        assertArrayEquals(data, printer.getReceived());
+        assertEquals(0, metrics.getResumes());
+        assertEquals(data.length, metrics.getBytesWritten());
+        // One write and one flush sample per chunk
+        int chunks = (data.length + writer.getOptions().chunkSize - 1) / writer.getOptions().chunkSize;
+        assertEquals(chunks, metrics.writeLatency.getCount());
+        assertEquals(chunks, metrics.flushLatency.getCount());
+    }
+
+    @Test
+    public void resumesFromLastAcknowledgedChunk() throws Exception {
+        byte[] data = PrinterTestSupport.pattern(10_000);
+        // Dies partway through the third chunk (2048..3072)
+        printer.dropAfter(2_500);
+
+        writer.write("job", data);
+
+        byte[] received = printer.getReceived();
+        // Only the interrupted chunk is sent twice, not the whole job
+        assertEquals(data.length + 452, received.length);
+        assertArrayEquals(Arrays.copyOfRange(data, 0, 2_500), Arrays.copyOfRange(received, 0, 2_500));
+        assertArrayEquals(Arrays.copyOfRange(data, 2_048, data.length),
+            Arrays.copyOfRange(received, 2_500, received.length));
+        assertEquals(1, metrics.getResumes());
+        assertEquals(2, printer.getConnects());
+    }
+
+    @Test
+    public void stalledWriteDropsLinkAndResumes() throws Exception {
+        writer.setOptions(new ChunkedPrintWriter.Options(1024, 0, 500, 3));
+        byte[] data = PrinterTestSupport.pattern(4_096);
+        printer.stallNextWrite();
+
+        writer.write("job", data);
+
+        assertArrayEquals(data, printer.getReceived());
+        assertEquals(1, metrics.getStalls());
+        assertEquals(1, metrics.getResumes());
+    }
+
+    @Test
+    public void failsOnceResumesAreExhausted() throws Exception {
+        writer.setOptions(new ChunkedPrintWriter.Options(1024, 0, 5_000, 0));
+        printer.dropAfter(100);
+        try {
+            writer.write("job", PrinterTestSupport.pattern(4_096));
+            fail("write should fail without resumes left");
+        } catch (IOException expected) {
+            // expected
+        }
+        assertEquals(0, metrics.getResumes());
+    }
+
+    @Test
+    public void pacingSpacesOutChunks() throws Exception {
+        writer.setOptions(new ChunkedPrintWriter.Options(1024, 20, 5_000, 3));
+        long start = System.nanoTime();
+        writer.write("job", PrinterTestSupport.pattern(5 * 1024));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        // Four pauses between five chunks
+        assertTrue("took " + elapsedMs + " ms", elapsedMs >= 80);
+    }
+}
@@ -0,0 +1,101 @@
+package com.animusic;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class EscPCommandBuilderTest {
+    @Test
+    public void barcodeWritesLengthAndHeightLittleEndian() {
+        byte[] bytes = new EscPCommandBuilder().barcode(EscPCommandBuilder.BARCODE_CODE39, "ABC", 300).toByteArray();
+
+        assertArrayEquals(bytes(0x1B, '(', 'B', 9, 0, 5, 2, 0, 0x2C, 0x01, 0x02, 'A', 'B', 'C', '\r', '\n'), bytes);
+
+        char[] longData = new char[300];
+        Arrays.fill(longData, '1');
+        byte[] header = Arrays.copyOf(
+            new EscPCommandBuilder().barcode(EscPCommandBuilder.BARCODE_CODE128, new String(longData), 24).toByteArray(), 10);
+        assertArrayEquals(bytes(0x1B, '(', 'B', 0x32, 0x01, 6, 2, 0, 24, 0), header);
+    }
+
+    @Test
+    public void bitImagePacksColumnsIntoBandsWithPartialLastBand() {
+        int width = 2;
+        int height = 30;
+        boolean[] dots = new boolean[width * height];
+        for (int y = 0; y < height; y++) {
+            dots[y * width] = true;
+        }
+        dots[1] = true;
+        dots[25 * width + 1] = true;
+
+        byte[] bytes = new EscPCommandBuilder().bitImage(dots, width, height).toByteArray();
+
+        assertArrayEquals(bytes(
+            0x1B, '3', 24,
+            0x1B, '*', 39, 2, 0, 0xFF, 0xFF, 0xFF, 0x80, 0x00, 0x00, '\r', '\n',
+            // Rows 24-29 only fill the top six bits of the first slice
+            0x1B, '*', 39, 2, 0, 0xFC, 0x00, 0x00, 0x40, 0x00, 0x00, '\r', '\n',
+            0x1B, '2'), bytes);
+    }
+
+    @Test
+    public void textSwitchesToEncoderAtFirstNonAsciiCharacter() {
+        byte[] bytes = new EscPCommandBuilder().charset(StandardCharsets.ISO_8859_1).text("caf\u00e9 ok").toByteArray();
+
+        assertArrayEquals(bytes('c', 'a', 'f', 0xE9, ' ', 'o', 'k'), bytes);
+        assertArrayEquals(bytes('a', 0xE2, 0x82, 0xAC),
+            new EscPCommandBuilder().text("a\u20ac").toByteArray());
+    }
+
+    @Test
+    public void ditheringFlatInputGivesSolidOrEmptyBand() {
+        int width = 3;
+        int height = 24;
+        int[] black = new int[width * height];
+        int[] white = new int[width * height];
+        Arrays.fill(white, 255);
+
+        byte[] solid = new EscPCommandBuilder().ditheredImage(black, width, height).toByteArray();
+        byte[] empty = new EscPCommandBuilder().ditheredImage(white, width, height).toByteArray();
+
+        byte[] solidBand = new byte[width * 3];
+        Arrays.fill(solidBand, (byte) 0xFF);
+        assertArrayEquals(solidBand, Arrays.copyOfRange(solid, 8, 8 + width * 3));
+        assertArrayEquals(new byte[width * 3], Arrays.copyOfRange(empty, 8, 8 + width * 3));
+    }
+
+    @Test
+    public void releaseDropsOversizedBuilders() {
+        drainPool();
+        EscPCommandBuilder small = EscPCommandBuilder.acquire();
+        small.text("receipt");
+        EscPCommandBuilder.release(small);
+        assertSame(small, EscPCommandBuilder.acquire());
+
+        EscPCommandBuilder large = EscPCommandBuilder.acquire();
+        large.raw(new byte[EscPCommandBuilder.MAX_POOLED_CAPACITY + 1]);
+        EscPCommandBuilder.release(large);
+        assertNotSame(large, EscPCommandBuilder.acquire());
+    }
+
+    private static void drainPool() {
+        // The pool is static and shared with other tests
+        for (int i = 0; i < EscPCommandBuilder.MAX_POOLED; i++) {
+            EscPCommandBuilder.acquire();
+        }
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+}
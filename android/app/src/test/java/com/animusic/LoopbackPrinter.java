@@ -0,0 +1,270 @@
+package com.animusic;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// In-memory stand-in for a printer. Records everything written and answers DLE EOT status
+// queries. It can also simulate slow links, a printer buffer that fills up, failed connects,
+// dropped links and stalled writes.
+class LoopbackPrinter implements PrinterTransport {
+    private final String address;
+    private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+    private final AtomicInteger connects = new AtomicInteger();
+    private final AtomicInteger failConnects = new AtomicInteger();
+
+    volatile long connectLatencyMs;
+    volatile long writeLatencyMs;
+    // Printer input buffer; 0 means writes never block on it
+    volatile int bufferCapacity;
+    volatile int drainBytesPerSecond;
+    // Status bytes returned for DLE EOT 1, 2 and 4
+    volatile int printerStatus = 0x12;
+    volatile int offlineStatus = 0x12;
+    volatile int paperStatus = 0x12;
+    // False to behave like a printer without real-time status support
+    volatile boolean answerStatus = true;
+
+    private long dropAfterBytes = -1;
+    private boolean stallNextWrite;
+    private long bufferLevel;
+    private long lastDrainNanos = System.nanoTime();
+    private LoopbackLink current;
+
+    LoopbackPrinter(String address) {
+        this.address = address;
+    }
+
+    @Override
+    public String getAddress() {
+        return address;
+    }
+
+    @Override
+    public String getName() {
+        return "Loopback " + address;
+    }
+
+    @Override
+    public Link open() throws IOException {
+        sleep(connectLatencyMs);
+        if (failConnects.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+            throw new IOException("Simulated connect failure");
+        }
+        connects.incrementAndGet();
+        LoopbackLink link = new LoopbackLink();
+        synchronized (this) {
+            current = link;
+        }
+        return link;
+    }
+
+    void failNextConnects(int count) {
+        failConnects.set(count);
+    }
+
+    // Breaks the link once this many more bytes have been received
+    synchronized void dropAfter(long bytes) {
+        dropAfterBytes = received.size() + bytes;
+    }
+
+    // The next write blocks until the link is closed, like a wedged RFCOMM socket
+    synchronized void stallNextWrite() {
+        stallNextWrite = true;
+    }
+
+    // Simulates the printer going out of range
+    void dropLink() {
+        LoopbackLink link;
+        synchronized (this) {
+            link = current;
+        }
+        if (link != null) {
+            link.close();
+        }
+    }
+
+    int getConnects() {
+        return connects.get();
+    }
+
+    synchronized byte[] getReceived() {
+        return received.toByteArray();
+    }
+
+    synchronized int getReceivedCount() {
+        return received.size();
+    }
+
+    synchronized void clearReceived() {
+        received.reset();
+        dropAfterBytes = -1;
+    }
+
+    private static void sleep(long ms) throws IOException {
+        if (ms <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted");
+        }
+    }
+
+    private class LoopbackLink implements Link {
+        private final BlockingQueue<Integer> replies = new LinkedBlockingQueue<>();
+        private volatile boolean closed;
+        // Last two bytes seen, to spot DLE EOT n across write boundaries
+        private int previous = -1;
+        private int beforePrevious = -1;
+
+        private final OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] {(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] data, int offset, int length) throws IOException {
+                ensureOpen();
+                awaitStall();
+                sleep(writeLatencyMs);
+                awaitBufferSpace(length);
+                accept(data, offset, length);
+            }
+        };
+
+        private final InputStream in = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                while (!closed) {
+                    try {
+                        Integer value = replies.poll(20, TimeUnit.MILLISECONDS);
+                        if (value != null) {
+                            return value;
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted");
+                    }
+                }
+                return -1;
+            }
+        };
+
+        @Override
+        public OutputStream getOutputStream() {
+            return out;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return in;
+        }
+
+        @Override
+        public boolean isConnected() {
+            return !closed;
+        }
+
+        @Override
+        public void close() {
+            synchronized (LoopbackPrinter.this) {
+                closed = true;
+                LoopbackPrinter.this.notifyAll();
+            }
+        }
+
+        private void ensureOpen() throws IOException {
+            if (closed) {
+                throw new IOException("Link closed");
+            }
+        }
+
+        private void awaitStall() throws IOException {
+            synchronized (LoopbackPrinter.this) {
+                if (!stallNextWrite) {
+                    return;
+                }
+                stallNextWrite = false;
+                while (!closed) {
+                    try {
+                        LoopbackPrinter.this.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+            throw new IOException("Link closed during stalled write");
+        }
+
+        private void awaitBufferSpace(int length) throws IOException {
+            if (bufferCapacity <= 0 || drainBytesPerSecond <= 0) {
+                return;
+            }
+            long needed = Math.min(length, bufferCapacity);
+            while (true) {
+                synchronized (LoopbackPrinter.this) {
+                    long now = System.nanoTime();
+                    long drained = (now - lastDrainNanos) * drainBytesPerSecond / 1_000_000_000L;
+                    if (drained > 0) {
+                        bufferLevel = Math.max(0, bufferLevel - drained);
+                        lastDrainNanos = now;
+                    }
+                    if (bufferLevel + needed <= bufferCapacity) {
+                        bufferLevel += needed;
+                        return;
+                    }
+                }
+                ensureOpen();
+                sleep(1);
+            }
+        }
+
+        private void accept(byte[] data, int offset, int length) throws IOException {
+            synchronized (LoopbackPrinter.this) {
+                ensureOpen();
+                int accepted = length;
+                if (dropAfterBytes >= 0 && received.size() + length > dropAfterBytes) {
+                    accepted = (int) Math.max(0, dropAfterBytes - received.size());
+                }
+                received.write(data, offset, accepted);
+                for (int i = offset; i < offset + accepted; i++) {
+                    int value = data[i] & 0xFF;
+                    if (beforePrevious == 0x10 && previous == 0x04) {
+                        answer(value);
+                    }
+                    beforePrevious = previous;
+                    previous = value;
+                }
+                if (accepted < length) {
+                    dropAfterBytes = -1;
+                    closed = true;
+                    LoopbackPrinter.this.notifyAll();
+                    throw new IOException("Simulated link drop");
+                }
+            }
+        }
+
+        private void answer(int query) {
+            if (!answerStatus) {
+                return;
+            }
+            if (query == 1) {
+                replies.offer(printerStatus);
+            } else if (query == 2) {
+                replies.offer(offlineStatus);
+            } else if (query == 4) {
+                replies.offer(paperStatus);
+            }
+        }
+    }
+}
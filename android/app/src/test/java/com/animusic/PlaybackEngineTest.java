@@ -0,0 +1,215 @@
+package com.animusic;
+
+import android.content.ContextWrapper;
+import android.media.MediaPlayer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PlaybackEngineTest {
+    @Test
+    public void preparedNextTrackIsChainedAndTakesOverAtEndOfStream() {
+        TestEngine engine = new TestEngine();
+        engine.setQueue(album(3), 0, true);
+
+        FakePlayer first = engine.player(0);
+        first.prepared();
+        assertTrue(first.started);
+        // The next track starts buffering as soon as the current one is ready
+        FakePlayer second = engine.player(1);
+        second.prepared();
+        assertSame(second, first.next);
+
+        first.completed();
+
+        assertEquals(1, engine.getIndex());
+        assertEquals(PlaybackEngine.State.PLAYING, engine.getState());
+        assertTrue(first.released);
+        // The platform already started the chained player, the engine must not restart it
+        assertFalse(second.started);
+        FakePlayer third = engine.player(2);
+        third.prepared();
+        assertSame(third, second.next);
+    }
+
+    @Test
+    public void skipToNextPromotesTheBufferedPlayer() {
+        TestEngine engine = new TestEngine();
+        engine.setQueue(album(2), 0, true);
+        FakePlayer first = engine.player(0);
+        first.prepared();
+        FakePlayer second = engine.player(1);
+        second.prepared();
+
+        engine.skipToNext();
+
+        assertEquals(1, engine.getIndex());
+        assertTrue(second.started);
+        assertTrue(first.released);
+        assertNull(first.next);
+        assertEquals(2, engine.players.size());
+    }
+
+    @Test
+    public void withoutGaplessCompletionLoadsTheNextTrack() {
+        TestEngine engine = new TestEngine();
+        engine.setGapless(false);
+        engine.setQueue(album(2), 0, true);
+        FakePlayer first = engine.player(0);
+        first.prepared();
+        assertEquals(1, engine.players.size());
+
+        first.completed();
+
+        assertEquals(1, engine.getIndex());
+        assertEquals(PlaybackEngine.State.BUFFERING, engine.getState());
+        assertTrue(first.released);
+        assertEquals(2, engine.players.size());
+    }
+
+    @Test
+    public void enablingGaplessWhileBufferingStillChains() {
+        TestEngine engine = new TestEngine();
+        engine.setGapless(false);
+        engine.setQueue(album(2), 0, true);
+        FakePlayer first = engine.player(0);
+
+        engine.setGapless(true);
+        // Nothing to chain onto until the current track is prepared
+        assertEquals(1, engine.players.size());
+
+        first.prepared();
+        FakePlayer second = engine.player(1);
+        second.prepared();
+        assertSame(second, first.next);
+
+        first.completed();
+
+        assertEquals(1, engine.getIndex());
+        assertEquals(PlaybackEngine.State.PLAYING, engine.getState());
+    }
+
+    @Test
+    public void handoverKeepsTheFadedVolume() {
+        TestEngine engine = new TestEngine();
+        engine.setQueue(album(2), 0, true);
+        FakePlayer first = engine.player(0);
+        first.prepared();
+        FakePlayer second = engine.player(1);
+        second.prepared();
+
+        engine.setVolume(0.3f);
+        first.completed();
+
+        assertEquals(0.3f, second.volume, 0);
+    }
+
+    @Test
+    public void singleTrackQueueHasNothingToChain() {
+        TestEngine engine = new TestEngine();
+        engine.setQueue(album(1), 0, true);
+        FakePlayer only = engine.player(0);
+        only.prepared();
+
+        assertEquals(1, engine.players.size());
+
+        only.completed();
+
+        assertEquals(PlaybackEngine.State.STOPPED, engine.getState());
+    }
+
+    private static List<PlaybackEngine.Track> album(int size) {
+        PlaybackEngine.Track[] tracks = new PlaybackEngine.Track[size];
+        for (int i = 0; i < size; i++) {
+            tracks[i] = new PlaybackEngine.Track("track" + i, "/music/track" + i + ".mp3",
+                "Track " + i, "Artist", "Album", 180_000);
+        }
+        return Arrays.asList(tracks);
+    }
+
+    // Hands out fake players and always gets audio focus
+    private static class TestEngine extends PlaybackEngine {
+        final List<FakePlayer> players = new ArrayList<>();
+
+        TestEngine() {
+            super(new ContextWrapper(null));
+        }
+
+        FakePlayer player(int created) {
+            return players.get(created);
+        }
+
+        @Override
+        MediaPlayer newMediaPlayer() {
+            FakePlayer player = new FakePlayer();
+            players.add(player);
+            return player;
+        }
+
+        @Override
+        boolean requestFocus() {
+            return true;
+        }
+    }
+
+    private static class FakePlayer extends MediaPlayer {
+        private OnPreparedListener onPrepared;
+        private OnCompletionListener onCompletion;
+        MediaPlayer next;
+        boolean started;
+        boolean released;
+        float volume = 1f;
+
+        void prepared() {
+            onPrepared.onPrepared(this);
+        }
+
+        void completed() {
+            onCompletion.onCompletion(this);
+        }
+
+        @Override
+        public void setOnPreparedListener(OnPreparedListener listener) {
+            onPrepared = listener;
+        }
+
+        @Override
+        public void setOnCompletionListener(OnCompletionListener listener) {
+            onCompletion = listener;
+        }
+
+        @Override
+        public void setNextMediaPlayer(MediaPlayer next) {
+            this.next = next;
+        }
+
+        @Override
+        public void setVolume(float left, float right) {
+            volume = left;
+        }
+
+        @Override
+        public void start() {
+            started = true;
+        }
+
+        @Override
+        public boolean isPlaying() {
+            return started && !released;
+        }
+
+        @Override
+        public void release() {
+            released = true;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.animusic;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+public class PrintRouterTest {
+    private final PrinterSession.Listener listener = new PrinterSession.Listener() {
+        @Override
+        public void onConnectionStateChanged(PrinterSession session, PrinterConnection.State state) {
+        }
+
+        @Override
+        public void onJobFinished(PrinterSession session, PrintSpooler.Job job, Exception error) {
+        }
+
+        @Override
+        public void onBackpressure(PrinterSession session, boolean saturated, int queuedJobs, long queuedBytes) {
+        }
+
+        @Override
+        public void onStatusChanged(PrinterSession session, PrinterStatusReader.Status status) {
+        }
+    };
+
+    private final PrintRouter router = new PrintRouter();
+    private PrinterSession first;
+    private PrinterSession second;
+
+    @Before
+    public void setUp() throws Exception {
+        first = new PrinterSession(new LoopbackPrinter("00:00:00:00:00:01"), listener);
+        second = new PrinterSession(new LoopbackPrinter("00:00:00:00:00:02"), listener);
+        PrinterTestSupport.connect(first);
+        PrinterTestSupport.connect(second);
+        // The first status poll un-pauses spoolers; let it land before tests pause them
+        PrinterTestSupport.awaitCondition("first status poll",
+            () -> first.getStatus().responsive && second.getStatus().responsive);
+    }
+
+    @After
+    public void tearDown() {
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void roundRobinAlternates() {
+        router.setPolicy(PrintRouter.Policy.ROUND_ROBIN);
+        List<PrinterSession> sessions = Arrays.asList(second, first);
+
+        PrinterSession a = router.choose(sessions);
+        PrinterSession b = router.choose(sessions);
+
+        assertNotEquals(a, b);
+        assertEquals(a, router.choose(sessions));
+    }
+
+    @Test
+    public void peekDoesNotAdvanceTheRotation() {
+        router.setPolicy(PrintRouter.Policy.ROUND_ROBIN);
+        List<PrinterSession> sessions = Arrays.asList(second, first);
+
+        PrinterSession next = router.peek(sessions);
+
+        assertEquals(next, router.peek(sessions));
+        assertEquals(next, router.choose(sessions));
+        assertNotEquals(next, router.peek(sessions));
+    }
+
+    @Test
+    public void leastLoadedPrefersTheShorterQueue() {
+        router.setPolicy(PrintRouter.Policy.LEAST_LOADED);
+        first.getSpooler().setPaused(true);
+        first.submit(new PrintSpooler.Job("queued", new byte[4096], null));
+
+        assertEquals(second, router.choose(Arrays.asList(first, second)));
+    }
+
+    @Test
+    public void closedSessionsAreSkipped() {
+        first.close();
+
+        assertEquals(second, router.choose(Arrays.asList(first, second)));
+        second.close();
+        assertNull(router.choose(Arrays.asList(first, second)));
+        assertNull(router.choose(Collections.<PrinterSession>emptyList()));
+    }
+
+    @Test
+    public void parsesPolicyNames() {
+        assertEquals(PrintRouter.Policy.ROUND_ROBIN, PrintRouter.parsePolicy("roundRobin"));
+        assertEquals(PrintRouter.Policy.LEAST_LOADED, PrintRouter.parsePolicy("leastLoaded"));
+    }
+}
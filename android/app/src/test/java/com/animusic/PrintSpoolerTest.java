@@ -0,0 +1,138 @@
+package com.animusic;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class PrintSpoolerTest {
+    private final PrinterMetrics metrics = new PrinterMetrics();
+    private final List<Boolean> backpressure = new CopyOnWriteArrayList<>();
+    private final List<Exception> errors = new CopyOnWriteArrayList<>();
+    private LoopbackPrinter printer;
+    private PrinterConnection connection;
+    private PrintSpooler spooler;
+    private CountDownLatch finished;
+
+    @Before
+    public void setUp() throws Exception {
+        printer = new LoopbackPrinter("00:11:22:33:44:66");
+        connection = new PrinterConnection(printer, (source, state) -> { }, metrics);
+        PrinterTestSupport.connect(connection);
+        spooler = new PrintSpooler(connection, new PrintSpooler.Listener() {
+            @Override
+            public void onJobFinished(PrintSpooler.Job job, Exception error) {
+                if (error != null) {
+                    errors.add(error);
+                }
+            }
+
+            @Override
+            public void onBackpressure(boolean saturated, int queuedJobs, long queuedBytes) {
+                backpressure.add(saturated);
+            }
+        }, metrics);
+    }
+
+    @After
+    public void tearDown() {
+        spooler.shutdown();
+        connection.close();
+    }
+
+    private boolean submit(String id, byte[] data) {
+        return spooler.submit(new PrintSpooler.Job(id, data, (job, error) -> finished.countDown()));
+    }
+
+    @Test
+    public void writesJobsInSubmitOrder() throws Exception {
+        finished = new CountDownLatch(3);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (String text : new String[] {"first\n", "second\n", "third\n"}) {
+            byte[] data = text.getBytes("US-ASCII");
+            expected.write(data);
+            assertTrue(submit(text, data));
+        }
+
+        assertTrue(finished.await(PrinterTestSupport.TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertArrayEquals(expected.toByteArray(), printer.getReceived());
+        assertTrue(errors.isEmpty());
+        assertEquals(3, metrics.getJobsCompleted());
+    }
+
+    @Test
+    public void coalescesQueuedJobsIntoOneBatch() throws Exception {
+        finished = new CountDownLatch(10);
+        spooler.setPaused(true);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(submit("job-" + i, PrinterTestSupport.pattern(100)));
+        }
+        spooler.setPaused(false);
+
+        assertTrue(finished.await(PrinterTestSupport.TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertEquals(1, metrics.getBatches());
+        assertEquals(1000, printer.getReceivedCount());
+        assertEquals(10, metrics.getMaxQueueDepth());
+    }
+
+    @Test
+    public void streamsJobsLargerThanABatch() throws Exception {
+        finished = new CountDownLatch(1);
+        byte[] data = PrinterTestSupport.pattern(100 * 1024);
+        assertTrue(submit("large", data));
+
+        assertTrue(finished.await(PrinterTestSupport.TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertArrayEquals(data, printer.getReceived());
+        assertTrue(errors.isEmpty());
+    }
+
+    @Test
+    public void refusesJobsBeyondTheQueueCap() {
+        finished = new CountDownLatch(2);
+        spooler.setPaused(true);
+        // A single oversized job is still accepted into an empty queue
+        assertTrue(submit("big", new byte[(int) PrintSpooler.MAX_QUEUED_BYTES]));
+        assertFalse(submit("extra", new byte[1]));
+    }
+
+    @Test
+    public void reportsBackpressureUntilTheQueueDrains() throws Exception {
+        finished = new CountDownLatch(5);
+        spooler.setPaused(true);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(submit("job-" + i, PrinterTestSupport.pattern(64 * 1024)));
+        }
+        assertTrue(spooler.isSaturated());
+        assertEquals(Boolean.TRUE, backpressure.get(0));
+
+        spooler.setPaused(false);
+        assertTrue(finished.await(PrinterTestSupport.TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertFalse(spooler.isSaturated());
+        assertEquals(Boolean.FALSE, backpressure.get(backpressure.size() - 1));
+    }
+
+    @Test
+    public void shutdownFailsQueuedJobs() throws Exception {
+        finished = new CountDownLatch(2);
+        spooler.setPaused(true);
+        assertTrue(submit("a", new byte[] {'a'}));
+        assertTrue(submit("b", new byte[] {'b'}));
+        spooler.shutdown();
+
+        assertTrue(finished.await(PrinterTestSupport.TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertEquals(2, errors.size());
+        assertNotNull(errors.get(0).getMessage());
+        assertFalse(submit("c", new byte[] {'c'}));
+    }
+}
@@ -0,0 +1,105 @@
+package com.animusic;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PrinterConnectionTest {
+    private final PrinterMetrics metrics = new PrinterMetrics();
+    private final List<PrinterConnection.State> states = new CopyOnWriteArrayList<>();
+    private LoopbackPrinter printer;
+    private PrinterConnection connection;
+
+    @Before
+    public void setUp() {
+        printer = new LoopbackPrinter("00:11:22:33:44:55");
+        connection = new PrinterConnection(printer, (source, state) -> states.add(state), metrics);
+    }
+
+    @After
+    public void tearDown() {
+        connection.close();
+    }
+
+    @Test
+    public void connectsAndWrites() throws Exception {
+        PrinterTestSupport.connect(connection);
+        PrinterTestSupport.writeAll(connection, "hello".getBytes("US-ASCII"));
+
+        assertArrayEquals("hello".getBytes("US-ASCII"), printer.getReceived());
+        assertEquals(PrinterConnection.State.CONNECTED, connection.getState());
+        assertEquals(PrinterConnection.State.CONNECTING, states.get(0));
+        assertEquals(PrinterConnection.State.CONNECTED, states.get(1));
+        assertEquals(1, metrics.getConnects());
+        assertEquals(1, metrics.connectLatency.getCount());
+    }
+
+    @Test
+    public void failedConnectIsReported() throws Exception {
+        printer.failNextConnects(1);
+        try {
+            PrinterTestSupport.connect(connection);
+            fail("connect should fail");
+        } catch (IOException expected) {
+            // expected
+        }
+        assertEquals(PrinterConnection.State.DISCONNECTED, connection.getState());
+        assertFalse(connection.isUsable());
+        assertEquals(1, metrics.getFailureReasons().size());
+    }
+
+    @Test
+    public void reconnectsAfterLinkDrop() throws Exception {
+        PrinterTestSupport.connect(connection);
+        printer.dropLink();
+        try {
+            PrinterTestSupport.writeAll(connection, new byte[] {'a'});
+            fail("write on a dropped link should fail");
+        } catch (IOException expected) {
+            // expected
+        }
+        assertTrue(connection.isUsable());
+
+        // The next job waits for the background reconnect instead of failing
+        PrinterTestSupport.writeAll(connection, new byte[] {'b'});
+
+        assertArrayEquals(new byte[] {'b'}, printer.getReceived());
+        assertEquals(2, printer.getConnects());
+        assertEquals(1, metrics.getReconnects());
+        assertTrue(states.contains(PrinterConnection.State.RECONNECTING));
+    }
+
+    @Test
+    public void dropLinkForcesReconnect() throws Exception {
+        PrinterTestSupport.connect(connection);
+        connection.dropLink(new IOException("test"));
+
+        PrinterTestSupport.writeAll(connection, new byte[] {'c'});
+
+        assertEquals(2, printer.getConnects());
+        assertArrayEquals(new byte[] {'c'}, printer.getReceived());
+    }
+
+    @Test
+    public void executeFailsAfterClose() throws Exception {
+        PrinterTestSupport.connect(connection);
+        connection.close();
+        try {
+            PrinterTestSupport.writeAll(connection, new byte[] {'a'});
+            fail("closed connection should refuse writes");
+        } catch (IOException expected) {
+            // expected
+        }
+        assertEquals(PrinterConnection.State.CLOSED, states.get(states.size() - 1));
+    }
+}
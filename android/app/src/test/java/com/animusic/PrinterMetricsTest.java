@@ -0,0 +1,56 @@
+package com.animusic;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+public class PrinterMetricsTest {
+    @Test
+    public void histogramReportsBucketPercentiles() {
+        PrinterMetrics.Histogram histogram = new PrinterMetrics.Histogram();
+        for (int i = 0; i < 90; i++) {
+            histogram.recordNanos(3_000_000);
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.recordNanos(150_000_000);
+        }
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(5.0, histogram.getPercentileMs(50), 0);
+        assertEquals(200.0, histogram.getPercentileMs(95), 0);
+        assertEquals(150.0, histogram.getMaxMs(), 0);
+        assertEquals(17.7, histogram.getMeanMs(), 0.001);
+    }
+
+    @Test
+    public void failureReasonsAreCapped() {
+        PrinterMetrics metrics = new PrinterMetrics();
+        for (int i = 0; i < 25; i++) {
+            metrics.recordFailure(new IOException("reason " + i));
+        }
+        metrics.recordFailure(new IOException("reason 0"));
+
+        assertEquals(21, metrics.getFailureReasons().size());
+        assertEquals(Long.valueOf(2), metrics.getFailureReasons().get("IOException: reason 0"));
+        assertEquals(Long.valueOf(5), metrics.getFailureReasons().get("other"));
+    }
+
+    @Test
+    public void resetClearsEverything() {
+        PrinterMetrics metrics = new PrinterMetrics();
+        metrics.recordConnect(1_000_000, true);
+        metrics.recordBatch(100, 1_000_000, 1_000_000);
+        metrics.recordJob(true, 1_000_000);
+        metrics.recordResume();
+        metrics.reset();
+
+        assertEquals(0, metrics.getConnects());
+        assertEquals(0, metrics.getReconnects());
+        assertEquals(0, metrics.getBytesWritten());
+        assertEquals(0, metrics.getJobsCompleted());
+        assertEquals(0, metrics.getResumes());
+        assertEquals(0, metrics.jobLatency.getCount());
+    }
+}
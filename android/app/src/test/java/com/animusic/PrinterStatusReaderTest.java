@@ -0,0 +1,69 @@
+package com.animusic;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PrinterStatusReaderTest {
+    @Test
+    public void parsesReadyPrinter() {
+        PrinterStatusReader.Status status = PrinterStatusReader.parse(0x12, 0x12, 0x12);
+
+        assertTrue(status.responsive);
+        assertTrue(status.online);
+        assertTrue(status.canPrint());
+        assertEquals("normal", status.paperLevel());
+    }
+
+    @Test
+    public void parsesPaperAndCoverState() {
+        PrinterStatusReader.Status status = PrinterStatusReader.parse(0x1A, 0x36, 0x7E);
+
+        assertFalse(status.online);
+        assertTrue(status.coverOpen);
+        assertTrue(status.paperOut);
+        assertFalse(status.canPrint());
+        assertEquals("out", status.paperLevel());
+        assertEquals("low", PrinterStatusReader.parse(0x12, 0x12, 0x1E).paperLevel());
+    }
+
+    @Test
+    public void unresponsivePrinterMayStillPrint() {
+        PrinterStatusReader.Status status = PrinterStatusReader.Status.unknown();
+
+        assertFalse(status.responsive);
+        assertTrue(status.canPrint());
+        assertEquals("unknown", status.paperLevel());
+    }
+
+    @Test
+    public void reportsStatusPolledFromPrinter() throws Exception {
+        LoopbackPrinter printer = new LoopbackPrinter("00:11:22:33:44:88");
+        printer.paperStatus = 0x72;
+        PrinterConnection connection = new PrinterConnection(printer, (source, state) -> { }, new PrinterMetrics());
+        PrinterTestSupport.connect(connection);
+
+        CountDownLatch changed = new CountDownLatch(1);
+        AtomicReference<PrinterStatusReader.Status> reported = new AtomicReference<>();
+        PrinterStatusReader reader = new PrinterStatusReader(connection, status -> {
+            reported.set(status);
+            changed.countDown();
+        });
+        try {
+            reader.start();
+            assertTrue(changed.await(PrinterTestSupport.TIMEOUT_MS, TimeUnit.MILLISECONDS));
+            assertTrue(reported.get().responsive);
+            assertTrue(reported.get().paperOut);
+            assertEquals(reported.get(), reader.getStatus());
+        } finally {
+            reader.stop();
+            connection.close();
+        }
+    }
+}
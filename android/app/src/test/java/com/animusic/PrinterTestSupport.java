@@ -0,0 +1,70 @@
+package com.animusic;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertTrue;
+
+final class PrinterTestSupport {
+    static final long TIMEOUT_MS = 10_000;
+
+    private PrinterTestSupport() {
+    }
+
+    static void connect(PrinterConnection connection) throws Exception {
+        awaitConnect(connection::connect);
+    }
+
+    static void connect(PrinterSession session) throws Exception {
+        awaitConnect(session::connect);
+    }
+
+    private static void awaitConnect(Consumer<PrinterConnection.ConnectCallback> starter) throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<Exception> error = new AtomicReference<>();
+        starter.accept(new PrinterConnection.ConnectCallback() {
+            @Override
+            public void onConnected() {
+                done.countDown();
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                error.set(e);
+                done.countDown();
+            }
+        });
+        assertTrue("connect timed out", done.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        if (error.get() != null) {
+            throw error.get();
+        }
+    }
+
+    static void awaitCondition(String message, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!condition.getAsBoolean()) {
+            assertTrue(message, System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    static byte[] pattern(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            // Printable and free of DLE so the loopback never mistakes it for a status query
+            data[i] = (byte) ('A' + i % 26);
+        }
+        return data;
+    }
+
+    static void writeAll(PrinterConnection connection, byte[] data) throws IOException {
+        connection.execute(out -> {
+            out.write(data);
+            out.flush();
+        });
+    }
+}
@@ -0,0 +1,151 @@
+package com.animusic;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+// Throughput numbers for the printer stack against the loopback printer. Skipped by default;
+// run with ./gradlew :app:testDebugUnitTest -PprinterBenchmark=true --tests '*PrinterThroughputBenchmark'
+public class PrinterThroughputBenchmark {
+    private static final int WARMUP_ROUNDS = 2;
+
+    @Before
+    public void requireOptIn() {
+        Assume.assumeTrue(Boolean.getBoolean("printer.benchmark"));
+    }
+
+    @Test
+    public void connect() throws Exception {
+        PrinterMetrics metrics = new PrinterMetrics();
+        LoopbackPrinter printer = new LoopbackPrinter("00:00:00:00:10:01");
+        for (int round = 0; round < WARMUP_ROUNDS + 1; round++) {
+            metrics.reset();
+            for (int i = 0; i < 50; i++) {
+                PrinterConnection connection = new PrinterConnection(printer, (source, state) -> { }, metrics);
+                PrinterTestSupport.connect(connection);
+                connection.close();
+            }
+        }
+        report("connect", String.format(Locale.ROOT, "%d connects, mean %.3f ms, p95 <= %.0f ms",
+            metrics.connectLatency.getCount(), metrics.connectLatency.getMeanMs(),
+            metrics.connectLatency.getPercentileMs(95)));
+    }
+
+    @Test
+    public void queueSubmit() throws Exception {
+        int jobs = 50_000;
+        byte[] data = PrinterTestSupport.pattern(16);
+        double best = Double.MAX_VALUE;
+        for (int round = 0; round < WARMUP_ROUNDS + 1; round++) {
+            Harness harness = new Harness();
+            harness.spooler.setPaused(true);
+            long start = System.nanoTime();
+            for (int i = 0; i < jobs; i++) {
+                harness.spooler.submit(new PrintSpooler.Job("job", data, null));
+            }
+            best = Math.min(best, (System.nanoTime() - start) / (double) jobs);
+            assertEquals(jobs, harness.spooler.getQueuedJobs());
+            harness.close();
+        }
+        report("queue", String.format(Locale.ROOT, "%.0f ns per submit", best));
+    }
+
+    @Test
+    public void smallJobBatching() throws Exception {
+        int jobs = 20_000;
+        byte[] data = PrinterTestSupport.pattern(64);
+        for (int round = 0; round < WARMUP_ROUNDS + 1; round++) {
+            Harness harness = new Harness();
+            CountDownLatch done = new CountDownLatch(jobs);
+            long start = System.nanoTime();
+            for (int i = 0; i < jobs; i++) {
+                PrintSpooler.Job job = new PrintSpooler.Job("job", data, (finished, error) -> done.countDown());
+                while (!harness.spooler.submit(job)) {
+                    Thread.sleep(1);
+                }
+            }
+            assertTrue(done.await(60, TimeUnit.SECONDS));
+            long elapsed = System.nanoTime() - start;
+            if (round == WARMUP_ROUNDS) {
+                report("batch", String.format(Locale.ROOT, "%s, %.1f jobs per batch, flush p50 <= %.0f ms",
+                    rate(harness.printer.getReceivedCount(), elapsed),
+                    jobs / (double) harness.metrics.getBatches(), harness.metrics.flushLatency.getPercentileMs(50)));
+            }
+            harness.close();
+        }
+    }
+
+    @Test
+    public void streamedWrite() throws Exception {
+        byte[] data = PrinterTestSupport.pattern(2 * 1024 * 1024);
+        for (int chunkSize : new int[] {1024, 4096, 16384}) {
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < WARMUP_ROUNDS + 1; round++) {
+                Harness harness = new Harness();
+                ChunkedPrintWriter writer = new ChunkedPrintWriter(harness.connection, harness.metrics);
+                writer.setOptions(new ChunkedPrintWriter.Options(chunkSize, 0, 5_000, 3));
+                long start = System.nanoTime();
+                writer.write("job", data);
+                best = Math.min(best, System.nanoTime() - start);
+                harness.close();
+            }
+            report("write/" + chunkSize, rate(data.length, best));
+        }
+    }
+
+    @Test
+    public void streamedWriteIntoFullPrinterBuffer() throws Exception {
+        // 16 KB printer buffer draining at 1 MB/s, the link is never the bottleneck
+        byte[] data = PrinterTestSupport.pattern(1024 * 1024);
+        Harness harness = new Harness();
+        harness.printer.bufferCapacity = 16 * 1024;
+        harness.printer.drainBytesPerSecond = 1024 * 1024;
+        ChunkedPrintWriter writer = new ChunkedPrintWriter(harness.connection, harness.metrics);
+        long start = System.nanoTime();
+        writer.write("job", data);
+        long elapsed = System.nanoTime() - start;
+        report("write/buffer-full", rate(data.length, elapsed) + ", " + harness.metrics.getStalls() + " stalls");
+        harness.close();
+    }
+
+    private static String rate(long bytes, long nanos) {
+        return String.format(Locale.ROOT, "%.2f MB/s (%d bytes in %.1f ms)",
+            bytes / 1_048_576.0 / (nanos / 1e9), bytes, nanos / 1e6);
+    }
+
+    private static void report(String name, String result) {
+        System.out.println("BENCH " + name + ": " + result);
+    }
+
+    private static class Harness {
+        final PrinterMetrics metrics = new PrinterMetrics();
+        final LoopbackPrinter printer = new LoopbackPrinter("00:00:00:00:10:02");
+        final PrinterConnection connection = new PrinterConnection(printer, (source, state) -> { }, metrics);
+        final PrintSpooler spooler;
+
+        Harness() throws Exception {
+            PrinterTestSupport.connect(connection);
+            spooler = new PrintSpooler(connection, new PrintSpooler.Listener() {
+                @Override
+                public void onJobFinished(PrintSpooler.Job job, Exception error) {
+                }
+
+                @Override
+                public void onBackpressure(boolean saturated, int queuedJobs, long queuedBytes) {
+                }
+            }, metrics);
+        }
+
+        void close() {
+            spooler.shutdown();
+            connection.close();
+        }
+    }
+}
@@ -1,4 +1,4 @@
-import React, {createContext, useState, useContext, useEffect} from 'react';
+import React, {createContext, useState, useContext, useEffect, useRef} from 'react';
 import MusicService from '../services/MusicService';
 
 interface MusicContextType {
@@ -7,6 +7,7 @@ interface MusicContextType {
   setCurrentSong: (song: any) => void;
   setIsPlaying: (playing: boolean) => void;
   playSong: (song: any) => Promise<void>;
+  setQueue: (songs: any[]) => void;
   pauseSong: () => Promise<void>;
   stopSong: () => Promise<void>;
 }
@@ -16,15 +17,36 @@ const MusicContext = createContext<MusicContextType | undefined>(undefined);
 export const MusicProvider: React.FC<{children: React.ReactNode}> = ({children}) => {
   const [currentSong, setCurrentSong] = useState<any>(null);
   const [isPlaying, setIsPlaying] = useState(false);
+  // The list the user is playing from; playSong hands the whole list to the engine so
+  // skipping and gapless handover work
+  const queue = useRef<any[]>([]);
 
   useEffect(() => {
     MusicService.initialize();
+    // The native engine also changes state without JS asking: queue end, errors, focus loss,
+    // unplugged headphones and the notification, lock screen and headset controls
+    return MusicService.subscribeToPlaybackState((state, song) => {
+      setIsPlaying(state.isPlaying);
+      // A stopped engine keeps its track; stopSong clears the song on purpose, keep it cleared
+      if (state.state !== 'stopped') {
+        setCurrentSong(song);
+      }
+    });
   }, []);
 
+  const setQueue = (songs: any[]) => {
+    queue.current = songs;
+  };
+
   const playSong = async (song: any) => {
     try {
       // Always use MusicService which now handles both URLs and local files
-      await MusicService.playSong(song);
+      const index = queue.current.findIndex(queued => queued.id === song.id);
+      if (index >= 0) {
+        await MusicService.playQueue(queue.current, index);
+      } else {
+        await MusicService.playSong(song);
+      }
       setCurrentSong(song);
       setIsPlaying(true);
     } catch (error) {
@@ -63,6 +85,7 @@ export const MusicProvider: React.FC<{children: React.ReactNode}> = ({children})
         setCurrentSong,
         setIsPlaying,
         playSong,
+        setQueue,
         pauseSong,
         stopSong,
       }}>
@@ -72,7 +72,7 @@ export const GoogleMusicScreen = ({ navigation }: any) => {
   const [showOptionsModal, setShowOptionsModal] = useState(false);
   const [selectedSong, setSelectedSong] = useState<GoogleSheetSong | null>(null);
   
-  const { playSong, currentSong, isPlaying } = useMusic();
+  const { playSong, setQueue, currentSong, isPlaying } = useMusic();
   const googleSheetsService = useRef(GoogleSheetsServiceRN.getInstance()).current;
 
   useEffect(() => {
@@ -144,15 +144,14 @@ export const GoogleMusicScreen = ({ navigation }: any) => {
       }
 
       // Play the song directly using the music context
-      const songData = {
-        id: song.id,
-        title: song.name,
-        artist: song.artist,
-        path: directLink,
-        url: directLink,
-        album: song.movie,
-        isGoogleDrive: true,
-      };
+      const songData = toSongData(song);
+
+      // The rest of the visible list follows it in the queue
+      setQueue(
+        filteredSongs
+          .filter(item => !item.driveLink.includes('simulated'))
+          .map(toSongData),
+      );
 
       // Play through context
       await playSong(songData);
@@ -169,6 +168,19 @@ export const GoogleMusicScreen = ({ navigation }: any) => {
     }
   };
 
+  const toSongData = (song: GoogleSheetSong) => {
+    const directLink = googleSheetsService.getDriveDirectLink(song.driveLink);
+    return {
+      id: song.id,
+      title: song.name,
+      artist: song.artist,
+      path: directLink,
+      url: directLink,
+      album: song.movie,
+      isGoogleDrive: true,
+    };
+  };
+
   const handleSongOptions = (song: GoogleSheetSong) => {
     setSelectedSong(song);
     setShowOptionsModal(true);
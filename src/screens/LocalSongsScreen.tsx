@@ -70,7 +70,7 @@ export const LocalSongsScreen = ({navigation}: any) => {
   const [showDeleteModal, setShowDeleteModal] = useState(false);
   const [showOptionsModal, setShowOptionsModal] = useState(false);
   const [selectedSong, setSelectedSong] = useState<LocalSong | null>(null);
-  const {currentSong, stopSong} = useMusic();
+  const {currentSong, stopSong, setQueue} = useMusic();
 
   useEffect(() => {
     loadSongs();
@@ -93,7 +93,29 @@ export const LocalSongsScreen = ({navigation}: any) => {
       }
 
       setScanProgress('Scanning music folders...');
-      const localSongs = await MusicService.getLocalSongs();
+      // Pages are appended in place and shown at most once per frame; the filter effect
+      // derives filteredSongs from songs
+      const loaded: LocalSong[] = [];
+      let frame: number | null = null;
+      const showLoaded = () => {
+        frame = null;
+        setSongs(loaded.slice());
+        setScanProgress(`Found ${loaded.length} songs...`);
+      };
+      const localSongs = await MusicService.streamLocalSongs(page => {
+        const first = loaded.length === 0;
+        for (const song of page) {
+          loaded.push(song);
+        }
+        if (first) {
+          showLoaded();
+        } else if (frame === null) {
+          frame = requestAnimationFrame(showLoaded);
+        }
+      });
+      if (frame !== null) {
+        cancelAnimationFrame(frame);
+      }
       setSongs(localSongs);
       setFilteredSongs(localSongs);
       setScanProgress(`Found ${localSongs.length} songs`);
@@ -131,7 +153,8 @@ export const LocalSongsScreen = ({navigation}: any) => {
         shouldPlay: false
       });
     } else {
-      // Different song, play it
+      // Different song, play it with the visible list as the queue
+      setQueue(filteredSongs);
       navigation.navigate('MusicPlayer', {
         song,
         fromList: true,
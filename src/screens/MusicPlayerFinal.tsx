@@ -96,7 +96,9 @@ export const MusicPlayerFinal = ({navigation, route}: any) => {
   const fromMiniPlayer = route.params?.fromMiniPlayer;
   const fromList = route.params?.fromList;
   const shouldPlay = route.params?.shouldPlay;
-  const {currentSong, setCurrentSong, setIsPlaying: setGlobalPlaying, playSong, stopSong} = useMusic();
+  const {currentSong, setCurrentSong, isPlaying: globalPlaying, setIsPlaying: setGlobalPlaying, playSong, stopSong} = useMusic();
+  // Skips and gapless handovers change the track without navigating here again
+  const nowPlaying = currentSong || song;
   
   // Core states
   const [isPlaying, setIsPlaying] = useState(false);
@@ -113,9 +115,11 @@ export const MusicPlayerFinal = ({navigation, route}: any) => {
   // Animation refs - not causing re-renders
   const fadeAnim = useRef(new Animated.Value(0)).current;
   const scaleAnim = useRef(new Animated.Value(0.9)).current;
-  
-  // Progress update interval ref
-  const progressInterval = useRef<NodeJS.Timeout | null>(null);
+
+  // Follow the engine when it changes state on its own (queue end, notification controls)
+  useEffect(() => {
+    setIsPlaying(globalPlaying);
+  }, [globalPlaying]);
 
   useEffect(() => {
     // Check navigation source
@@ -123,7 +127,7 @@ export const MusicPlayerFinal = ({navigation, route}: any) => {
       // Coming from mini player, don't restart
       startAnimations();
       const updateState = async () => {
-        const playing = MusicService.isPlaying();
+        const playing = MusicService.getIsPlaying();
         setIsPlaying(playing);
         setGlobalPlaying(playing);
         const progress = await MusicService.getProgress();
@@ -135,7 +139,7 @@ export const MusicPlayerFinal = ({navigation, route}: any) => {
       // Same song clicked from list, don't restart
       startAnimations();
       const updateState = async () => {
-        const playing = MusicService.isPlaying();
+        const playing = MusicService.getIsPlaying();
         setIsPlaying(playing);
         setGlobalPlaying(playing);
         const progress = await MusicService.getProgress();
@@ -154,34 +158,20 @@ export const MusicPlayerFinal = ({navigation, route}: any) => {
     
     return () => {
       saveSongPosition();
-      if (progressInterval.current) {
-        clearInterval(progressInterval.current);
-      }
     };
   }, []);
 
   // Separate effect for progress updates
   useEffect(() => {
-    if (isPlaying) {
-      const startProgressUpdates = () => {
-        progressInterval.current = setInterval(async () => {
-          const progress = await MusicService.getProgress();
-          setCurrentTime(progress.position);
-          setDuration(progress.duration || 100);
-        }, 1000);
-      };
-      startProgressUpdates();
-    } else {
-      if (progressInterval.current) {
-        clearInterval(progressInterval.current);
-      }
+    if (!isPlaying) {
+      return;
     }
-    
-    return () => {
-      if (progressInterval.current) {
-        clearInterval(progressInterval.current);
-      }
-    };
+
+    // Pushed by the player instead of polled; nothing arrives while paused or backgrounded
+    return MusicService.subscribeToProgress(progress => {
+      setCurrentTime(progress.position);
+      setDuration(progress.duration || 100);
+    });
   }, [isPlaying]);
 
   const loadSongPosition = async () => {
@@ -205,13 +195,13 @@ export const MusicPlayerFinal = ({navigation, route}: any) => {
     await MusicService.initialize();
     if (song) {
       // Check if it's the same song already playing
-      if (currentSong?.id === song.id && MusicService.isPlaying()) {
+      if (currentSong?.id === song.id && MusicService.getIsPlaying()) {
         // Same song is playing, just update UI
         const progress = await MusicService.getProgress();
         setCurrentTime(progress.position);
         setDuration(progress.duration || 100);
         setIsPlaying(true);
-      } else if (currentSong?.id === song.id && !MusicService.isPlaying()) {
+      } else if (currentSong?.id === song.id && !MusicService.getIsPlaying()) {
         // Same song but paused, resume it
         setIsPlaying(false);
         const progress = await MusicService.getProgress();
@@ -295,7 +285,7 @@ export const MusicPlayerFinal = ({navigation, route}: any) => {
       await stopSong();
       
       // Delete the file
-      await MusicService.deleteSong(song.path);
+      await MusicService.deleteSong(nowPlaying.path);
       
       // Navigate back
       navigation.goBack();
@@ -365,10 +355,10 @@ export const MusicPlayerFinal = ({navigation, route}: any) => {
           {/* Song Info */}
           <View style={styles.songInfo}>
             <Text style={styles.songTitle} numberOfLines={1}>
-              {song?.title || 'Unknown Song'}
+              {nowPlaying?.title || 'Unknown Song'}
             </Text>
             <Text style={styles.songArtist} numberOfLines={1}>
-              {song?.artist || 'Unknown Artist'}
+              {nowPlaying?.artist || 'Unknown Artist'}
             </Text>
           </View>
           
@@ -457,7 +447,7 @@ export const MusicPlayerFinal = ({navigation, route}: any) => {
       {/* Delete Confirmation Modal */}
       <DeleteConfirmModalFast
         visible={showDeleteModal}
-        songTitle={song?.title || ''}
+        songTitle={nowPlaying?.title || ''}
         onConfirm={handleDeleteSong}
         onCancel={() => setShowDeleteModal(false)}
       />
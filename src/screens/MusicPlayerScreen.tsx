@@ -77,7 +77,7 @@ const Icon = ({name, size = 24, color = '#FFFFFF'}: {name: string; size?: number
 
 export const MusicPlayerScreen = ({navigation, route}: any) => {
   const song = route.params?.song;
-  const {setCurrentSong, setIsPlaying: setGlobalPlaying, playSong} = useMusic();
+  const {setCurrentSong, isPlaying: globalPlaying, setIsPlaying: setGlobalPlaying, playSong} = useMusic();
   const [isPlaying, setIsPlaying] = useState(false);
   const [currentTime, setCurrentTime] = useState(0);
   const [duration, setDuration] = useState(100);
@@ -89,6 +89,11 @@ export const MusicPlayerScreen = ({navigation, route}: any) => {
   
   const pulseAnim = useRef(new Animated.Value(1)).current;
 
+  // Follow the engine when it changes state on its own (queue end, notification controls)
+  useEffect(() => {
+    setIsPlaying(globalPlaying);
+  }, [globalPlaying]);
+
   useEffect(() => {
     initializePlayer();
     startAnimations();
@@ -96,7 +96,7 @@ const Icon = ({name, size = 24, color = '#FFFFFF'}: {name: string; size?: number
 
 export const MusicPlayerScreenV2 = ({navigation, route}: any) => {
   const song = route.params?.song;
-  const {setCurrentSong, setIsPlaying: setGlobalPlaying, playSong} = useMusic();
+  const {setCurrentSong, isPlaying: globalPlaying, setIsPlaying: setGlobalPlaying, playSong} = useMusic();
   
   const [isPlaying, setIsPlaying] = useState(false);
   const [currentTime, setCurrentTime] = useState(0);
@@ -114,6 +114,11 @@ export const MusicPlayerScreenV2 = ({navigation, route}: any) => {
   const scaleAnim = useRef(new Animated.Value(0.9)).current;
   const waveAnim = useRef(new Animated.Value(0)).current;
 
+  // Follow the engine when it changes state on its own (queue end, notification controls)
+  useEffect(() => {
+    setIsPlaying(globalPlaying);
+  }, [globalPlaying]);
+
   useEffect(() => {
     initializePlayer();
     startAnimations();
@@ -110,7 +110,7 @@ const Icon = ({name, size = 24, color = '#FFFFFF'}: {name: string; size?: number
 
 export const MusicPlayerScreenV3 = ({navigation, route}: any) => {
   const song = route.params?.song;
-  const {setCurrentSong, setIsPlaying: setGlobalPlaying, playSong} = useMusic();
+  const {setCurrentSong, isPlaying: globalPlaying, setIsPlaying: setGlobalPlaying, playSong} = useMusic();
   
   const [isPlaying, setIsPlaying] = useState(false);
   const [currentTime, setCurrentTime] = useState(0);
@@ -139,6 +139,11 @@ export const MusicPlayerScreenV3 = ({navigation, route}: any) => {
     new Animated.Value(28),
   ]).current;
 
+  // Follow the engine when it changes state on its own (queue end, notification controls)
+  useEffect(() => {
+    setIsPlaying(globalPlaying);
+  }, [globalPlaying]);
+
   useEffect(() => {
     initializePlayer();
     startAnimations();
@@ -151,21 +156,21 @@ export const MusicPlayerScreenV3 = ({navigation, route}: any) => {
   }, []);
 
   useEffect(() => {
-    const interval = setInterval(async () => {
-      if (isPlaying) {
-        const progress = await MusicService.getProgress();
-        setCurrentTime(progress.position);
-        setDuration(progress.duration || 100);
-        
-        // Auto-save position every 5 seconds
-        if (Math.floor(progress.position) % 5 === 0) {
-          saveSongPosition();
-        }
+    if (!isPlaying) {
+      return;
+    }
+
+    // Pushed by the player instead of polled; nothing arrives while paused or backgrounded
+    return MusicService.subscribeToProgress(progress => {
+      setCurrentTime(progress.position);
+      setDuration(progress.duration || 100);
+
+      // Auto-save position every 5 seconds
+      if (song?.id && Math.floor(progress.position) % 5 === 0) {
+        AsyncStorage.setItem(`song_position_${song.id}`, progress.position.toString());
       }
-    }, 1000);
-    
-    return () => clearInterval(interval);
-  }, [isPlaying, currentTime]);
+    });
+  }, [isPlaying, song?.id]);
 
   const loadSongPosition = async () => {
     if (song?.id) {
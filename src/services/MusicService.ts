@@ -1,8 +1,28 @@
-import {PermissionsAndroid, Platform} from 'react-native';
+import {NativeEventEmitter, NativeModules, PermissionsAndroid, Platform} from 'react-native';
 import RNFS from 'react-native-fs';
 import Sound from 'react-native-sound';
 import {FinalDeleteService} from './FinalDeleteService';
 
+const {MediaLibrary, MusicPlayback} = NativeModules;
+
+// Mirrors the native engine's PlaybackStateChanged events
+export interface NativePlaybackState {
+  state: 'idle' | 'buffering' | 'playing' | 'paused' | 'stopped' | 'error';
+  isPlaying: boolean;
+  index: number;
+  queueLength: number;
+  gapless: boolean;
+  position: number;
+  duration: number;
+  track: {id: string; path: string; title: string; artist: string; album?: string} | null;
+  error?: string;
+}
+
+export interface PlaybackProgress {
+  position: number;
+  duration: number;
+}
+
 export interface LocalSong {
   id: string;
   url: string;
@@ -20,10 +40,24 @@ class MusicService {
   private sleepTimer: NodeJS.Timeout | null = null;
   private currentSong: LocalSong | null = null;
   private isPlaying: boolean = false;
+  // Android: playback runs in the native engine, JS only sends commands
+  private nativeState: NativePlaybackState | null = null;
+  private queue: LocalSong[] = [];
+  private playbackEmitter: NativeEventEmitter | null = null;
 
   private constructor() {
     // Enable playback in silence mode
     Sound.setCategory('Playback');
+
+    if (MusicPlayback) {
+      const emitter = new NativeEventEmitter(MusicPlayback);
+      this.playbackEmitter = emitter;
+      emitter.addListener('PlaybackStateChanged', (state: NativePlaybackState) => {
+        this.nativeState = state;
+        this.isPlaying = state.isPlaying;
+        this.currentSong = this.songForState(state) ?? this.currentSong;
+      });
+    }
   }
 
   static getInstance(): MusicService {
@@ -85,6 +119,16 @@ class MusicService {
         throw new Error('Storage permission denied');
       }
 
+      // Android: one MediaStore query instead of walking folders
+      if (Platform.OS === 'android' && MediaLibrary) {
+        try {
+          const library = await MediaLibrary.scanAudioLibrary();
+          return this.unpackLibraryRows(library.rows, library.columns.length);
+        } catch (error) {
+          console.log('MediaStore scan failed, walking folders:', error);
+        }
+      }
+
       const musicPaths = [
         RNFS.ExternalStorageDirectoryPath + '/Music',
         RNFS.ExternalStorageDirectoryPath + '/Download',
@@ -124,6 +168,86 @@ class MusicService {
     }
   }
 
+  // Delivers the library page by page so the first screenful renders before the scan finishes
+  async streamLocalSongs(
+    onChunk: (songs: LocalSong[]) => void,
+    pageSize: number = 200,
+  ): Promise<LocalSong[]> {
+    if (Platform.OS !== 'android' || !MediaLibrary?.streamAudioLibrary) {
+      const songs = await this.getLocalSongs();
+      onChunk(songs);
+      return songs;
+    }
+
+    const hasPermission = await this.requestStoragePermission();
+    if (!hasPermission) {
+      throw new Error('Storage permission denied');
+    }
+
+    const emitter = new NativeEventEmitter(MediaLibrary);
+    const songs: LocalSong[] = [];
+    let streamId: number | null = null;
+    const earlyChunks: any[] = [];
+
+    return new Promise<LocalSong[]>((resolve, reject) => {
+      const handleChunk = (chunk: any) => {
+        if (chunk.error) {
+          subscription.remove();
+          reject(new Error(chunk.error));
+          return;
+        }
+        if (chunk.count > 0) {
+          const page = this.unpackLibraryRows(chunk.rows, chunk.columns.length);
+          songs.push(...page);
+          onChunk(page);
+        }
+        if (chunk.done) {
+          subscription.remove();
+          resolve(songs);
+        }
+      };
+
+      const subscription = emitter.addListener('MediaLibraryChunk', (chunk: any) => {
+        if (streamId === null) {
+          earlyChunks.push(chunk);
+        } else if (chunk.streamId === streamId) {
+          handleChunk(chunk);
+        }
+      });
+
+      MediaLibrary.streamAudioLibrary(pageSize)
+        .then((id: number) => {
+          streamId = id;
+          earlyChunks
+            .filter(chunk => chunk.streamId === id)
+            .forEach(handleChunk);
+        })
+        .catch((error: any) => {
+          subscription.remove();
+          reject(error);
+        });
+    });
+  }
+
+  // Rows come packed as [_id, _data, title, artist, album, duration, date_modified, size, ...]
+  private unpackLibraryRows(rows: any[], stride: number): LocalSong[] {
+    const songs: LocalSong[] = [];
+    for (let i = 0; i + stride <= rows.length; i += stride) {
+      const path: string = rows[i + 1];
+      const artist: string | null = rows[i + 3];
+      songs.push({
+        id: path,
+        url: path,
+        title: rows[i + 2] || this.extractTitle(path.substring(path.lastIndexOf('/') + 1)),
+        artist: artist && artist !== '<unknown>' ? artist : 'Unknown Artist',
+        album: rows[i + 4] || undefined,
+        path,
+        duration: Math.round((rows[i + 5] || 0) / 1000),
+      });
+    }
+    return songs;
+  }
+
   private isMusicFile(filename: string): boolean {
     const musicExtensions = ['.mp3', '.wav', '.m4a', '.flac', '.aac', '.ogg', '.wma'];
     return musicExtensions.some(ext => filename.toLowerCase().endsWith(ext));
@@ -134,7 +258,28 @@ class MusicService {
     return nameWithoutExt.replace(/_/g, ' ');
   }
 
+  // Hands the whole list to the native engine so track changes don't wait on JS
+  async playQueue(songs: LocalSong[], startIndex: number = 0) {
+    if (!MusicPlayback) {
+      return this.playSong(songs[startIndex]);
+    }
+    this.queue = songs;
+    this.currentSong = songs[startIndex];
+    this.isPlaying = true;
+    await MusicPlayback.setQueue(songs, startIndex, true);
+  }
+
+  // Native engine only: pre-buffer the next track so albums and mixes play without gaps
+  async setGapless(enabled: boolean) {
+    if (MusicPlayback) {
+      await MusicPlayback.setGapless(enabled);
+    }
+  }
+
   async playSong(song: LocalSong) {
+    if (MusicPlayback) {
+      return this.playQueue([song], 0);
+    }
     return new Promise<void>((resolve, reject) => {
       // Stop current song if playing
       if (this.currentSound) {
@@ -187,6 +332,10 @@ class MusicService {
   }
 
   async play() {
+    if (MusicPlayback) {
+      this.isPlaying = true;
+      return MusicPlayback.play();
+    }
     if (this.currentSound) {
       this.currentSound.play();
       this.isPlaying = true;
@@ -194,6 +343,10 @@ class MusicService {
   }
 
   async pause() {
+    if (MusicPlayback) {
+      this.isPlaying = false;
+      return MusicPlayback.pause();
+    }
     if (this.currentSound) {
       this.currentSound.pause();
       this.isPlaying = false;
@@ -201,6 +354,10 @@ class MusicService {
   }
 
   async stop() {
+    if (MusicPlayback) {
+      this.isPlaying = false;
+      return MusicPlayback.stop();
+    }
     if (this.currentSound) {
       this.currentSound.stop();
       this.isPlaying = false;
@@ -208,22 +365,37 @@ class MusicService {
   }
 
   async skipToNext() {
+    if (MusicPlayback) {
+      return MusicPlayback.skipToNext();
+    }
     // This would need playlist management
     console.log('Skip to next - not implemented');
   }
 
   async skipToPrevious() {
+    if (MusicPlayback) {
+      return MusicPlayback.skipToPrevious();
+    }
     // This would need playlist management
     console.log('Skip to previous - not implemented');
   }
 
   async seekTo(position: number) {
+    if (MusicPlayback) {
+      return MusicPlayback.seekTo(position);
+    }
     if (this.currentSound) {
       this.currentSound.setCurrentTime(position);
     }
   }
 
   getCurrentPosition(): Promise<number> {
+    if (MusicPlayback) {
+      return MusicPlayback.getState().then((state: NativePlaybackState) => {
+        this.nativeState = state;
+        return state.position;
+      });
+    }
     return new Promise((resolve) => {
       if (this.currentSound) {
         this.currentSound.getCurrentTime((seconds) => {
@@ -236,6 +408,9 @@ class MusicService {
   }
 
   getDuration(): number {
+    if (MusicPlayback) {
+      return this.nativeState?.duration ?? this.currentSong?.duration ?? 0;
+    }
     if (this.currentSound) {
       return this.currentSound.getDuration();
     }
@@ -250,6 +425,68 @@ class MusicService {
     return this.isPlaying;
   }
 
+  // Position updates for player screens, pushed in batches by the native engine (only while
+  // playing and in the foreground); falls back to a one-second poll without it
+  subscribeToProgress(listener: (progress: PlaybackProgress) => void): () => void {
+    if (MusicPlayback && this.playbackEmitter) {
+      const subscription = this.playbackEmitter.addListener('PlaybackProgress', (event: PlaybackProgress) => {
+        listener({position: event.position, duration: event.duration});
+      });
+      MusicPlayback.startProgressUpdates();
+      return () => {
+        subscription.remove();
+        MusicPlayback.stopProgressUpdates();
+      };
+    }
+
+    const interval = setInterval(async () => {
+      listener(await this.getProgress());
+    }, 1000);
+    return () => clearInterval(interval);
+  }
+
+  // Discrete changes (track, play/pause, seek, errors), emitted as they happen, including the
+  // ones the engine makes on its own (queue end, focus loss, notification and headset controls)
+  subscribeToPlaybackState(
+    listener: (state: NativePlaybackState, song: LocalSong | null) => void,
+  ): () => void {
+    if (!this.playbackEmitter) {
+      return () => {};
+    }
+    const subscription = this.playbackEmitter.addListener(
+      'PlaybackStateChanged',
+      (state: NativePlaybackState) => listener(state, this.songForState(state)),
+    );
+    return () => subscription.remove();
+  }
+
+  // The song object JS queued for this state, or one rebuilt from the engine's track when the
+  // queue was set before a JS reload
+  private songForState(state: NativePlaybackState): LocalSong | null {
+    if (state.index >= 0 && state.index < this.queue.length) {
+      return this.queue[state.index];
+    }
+    if (!state.track) {
+      return null;
+    }
+    return {
+      id: state.track.id,
+      url: state.track.path,
+      path: state.track.path,
+      title: state.track.title,
+      artist: state.track.artist,
+      album: state.track.album,
+      duration: state.duration,
+    };
+  }
+
+  // Sample every intervalMs and deliver samplesPerEvent samples per bridge event
+  async setProgressUpdates(intervalMs: number, samplesPerEvent: number) {
+    if (MusicPlayback) {
+      await MusicPlayback.setProgressUpdates(intervalMs, samplesPerEvent);
+    }
+  }
+
   async getProgress() {
     const position = await this.getCurrentPosition();
     const duration = this.getDuration();
@@ -283,20 +520,27 @@ class MusicService {
       
       this.sleepTimer = setTimeout(async () => {
         await this.stop();
+        // The engine keeps its volume across tracks, undo the fade for the next session
+        if (MusicPlayback) {
+          await MusicPlayback.setVolume(1);
+        }
         this.sleepTimer = null;
       }, duration);
     }
   }
   
   private startFadeOut(seconds: number) {
-    if (!this.currentSound) return;
+    if (!this.currentSound && !MusicPlayback) return;
     
     const steps = 10;
     const stepDuration = (seconds * 1000) / steps;
     let currentStep = 0;
     
     const fadeInterval = setInterval(() => {
-      if (this.currentSound && currentStep < steps) {
+      if (MusicPlayback && currentStep < steps) {
+        MusicPlayback.setVolume(1 - (currentStep / steps));
+        currentStep++;
+      } else if (this.currentSound && currentStep < steps) {
         const newVolume = 1 - (currentStep / steps);
         this.currentSound.setVolume(newVolume);
         currentStep++;
@@ -408,6 +652,9 @@ class MusicService {
   }
 
   destroy() {
+    if (MusicPlayback) {
+      MusicPlayback.stop();
+    }
     if (this.currentSound) {
       this.currentSound.stop();
       this.currentSound.release();
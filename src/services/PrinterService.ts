@@ -1,4 +1,4 @@
-import { Alert, NativeModules, Platform } from 'react-native';
+import { Alert, NativeEventEmitter, NativeModules, Platform } from 'react-native';
 import { PrinterDevice, PrintResult, PrintOptions, PrinterStatus, InvoiceData } from '../types/printer';
 import { InvoiceGenerator } from '../utils/InvoiceGenerator';
 
@@ -48,6 +48,41 @@ export class PrinterService {
     }
   }
 
+  // Calls onFound with cached printers immediately, then with each printer the active scan
+  // turns up. Returns a function that stops the scan.
+  async scanPrinters(onFound: (printer: PrinterDevice) => void): Promise<() => void> {
+    if (Platform.OS !== 'android' || !HoneywellPrinter?.startPrinterDiscovery) {
+      (await this.discoverPrinters()).forEach(onFound);
+      return () => {};
+    }
+
+    const toDevice = (printer: any): PrinterDevice => ({
+      id: printer.address || printer.id,
+      name: printer.name || `Honeywell ${printer.model}`,
+      model: printer.model || 'Honeywell Dot Matrix',
+      isConnected: !!printer.isConnected
+    });
+
+    const emitter = new NativeEventEmitter(HoneywellPrinter);
+    const subscriptions = [
+      emitter.addListener('PrinterDiscovered', printer => onFound(toDevice(printer))),
+      emitter.addListener('PrinterDiscoveryFinished', () => stop()),
+    ];
+    const stop = () => {
+      subscriptions.forEach(subscription => subscription.remove());
+      HoneywellPrinter.stopPrinterDiscovery().catch(() => {});
+    };
+
+    try {
+      const cached = await HoneywellPrinter.startPrinterDiscovery();
+      cached.forEach((printer: any) => onFound(toDevice(printer)));
+    } catch (error) {
+      console.error('Error starting printer discovery:', error);
+      stop();
+    }
+    return stop;
+  }
+
   private async fallbackDiscoverPrinters(): Promise<PrinterDevice[]> {
     // Try to find available Honeywell devices manually
     // This would typically scan for Bluetooth or USB connected devices
@@ -192,13 +227,19 @@ export class PrinterService {
 
   private async printWithEscPCommands(formattedInvoice: string, jobId: string): Promise<PrintResult> {
     try {
-      // Send ESC/P commands for dot matrix printer
-      const escPCommands = this.generateEscPCommands(formattedInvoice);
-      
-      if (HoneywellPrinter && HoneywellPrinter.sendRawData) {
-        await HoneywellPrinter.sendRawData(escPCommands);
+      if (HoneywellPrinter && HoneywellPrinter.printJob) {
+        // Same bytes as generateEscPCommands, built natively
+        await HoneywellPrinter.printJob({
+          items: [{type: 'text', text: formattedInvoice, bold: true, newline: false}],
+        });
+      } else if (HoneywellPrinter && HoneywellPrinter.sendRawBase64) {
+        const escPCommands = this.generateEscPCommands(formattedInvoice);
+        await HoneywellPrinter.sendRawBase64(Buffer.from(escPCommands).toString('base64'));
+      } else if (HoneywellPrinter && HoneywellPrinter.sendRawData) {
+        await HoneywellPrinter.sendRawData(this.generateEscPCommands(formattedInvoice));
       } else {
         // If no raw data method, print as text
+        const escPCommands = this.generateEscPCommands(formattedInvoice);
         console.log('=== SENDING TO HONEYWELL DOT MATRIX PRINTER ===');
         console.log(formattedInvoice);
         console.log('=== ESC/P COMMANDS ===');
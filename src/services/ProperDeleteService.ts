@@ -1,7 +1,7 @@
 import {NativeModules, Platform} from 'react-native';
 import RNFS from 'react-native-fs';
 
-const {MediaStoreDelete} = NativeModules;
+const {MediaStoreDelete, MediaTrash} = NativeModules;
 
 export class ProperDeleteService {
   static async deleteFile(filePath: string): Promise<boolean> {
@@ -53,4 +53,57 @@ export class ProperDeleteService {
       return false;
     }
   }
+
+  // Deletes many files behind a single system confirmation dialog
+  static async deleteFiles(
+    filePaths: string[],
+  ): Promise<{path: string; status: string; deleted: boolean}[]> {
+    if (Platform.OS !== 'android' || !MediaStoreDelete?.deleteAudioFiles) {
+      const results = [];
+      for (const path of filePaths) {
+        const deleted = await ProperDeleteService.deleteFile(path);
+        results.push({path, status: deleted ? 'deleted' : 'failed', deleted});
+      }
+      return results;
+    }
+
+    try {
+      return await MediaStoreDelete.deleteAudioFiles(filePaths);
+    } catch (error) {
+      console.error('MediaStore batch delete error:', error);
+      return filePaths.map(path => ({path, status: 'failed', deleted: false}));
+    }
+  }
+
+  // Reversible delete: files stay restorable until the idle purge job removes them
+  static async moveToTrash(
+    filePaths: string[],
+  ): Promise<{path: string; status: string}[]> {
+    if (Platform.OS !== 'android' || !MediaTrash) {
+      // No trash to move into; callers fall back to deleteFiles if they accept a permanent delete
+      return filePaths.map(path => ({path, status: 'unsupported'}));
+    }
+
+    try {
+      return await MediaTrash.moveToTrash(filePaths);
+    } catch (error) {
+      console.error('Move to trash error:', error);
+      return filePaths.map(path => ({path, status: 'failed'}));
+    }
+  }
+
+  static async restoreFromTrash(
+    filePaths: string[],
+  ): Promise<{path: string; status: string}[]> {
+    if (Platform.OS !== 'android' || !MediaTrash) {
+      return filePaths.map(path => ({path, status: 'not_found'}));
+    }
+
+    try {
+      return await MediaTrash.restoreFromTrash(filePaths);
+    } catch (error) {
+      console.error('Restore from trash error:', error);
+      return filePaths.map(path => ({path, status: 'failed'}));
+    }
+  }
 }
\ No newline at end of file